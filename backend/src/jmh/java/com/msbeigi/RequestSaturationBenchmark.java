@@ -0,0 +1,139 @@
+package com.msbeigi;
+
+import com.msbeigi.customer.CustomerDao;
+import com.msbeigi.customer.CustomerRegistrationRequest;
+import com.msbeigi.customer.CustomerService;
+import com.msbeigi.customer.Gender;
+import com.msbeigi.jwt.JWTUtil;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.beans.factory.annotation.BeanFactoryAnnotationUtils;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// saturates GET /api/v1/customers/{id} with waves of concurrent clients, on tomcat's platform pool and on virtual
+// threads. the customer and user caches are off so every request blocks on jdbc. the aux counters are requests/s.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 3, time = 20)
+@Fork(1)
+public class RequestSaturationBenchmark {
+
+    @Param({"platform", "virtual"})
+    private String threads;
+
+    @Param({"1000", "10000"})
+    private int clients;
+
+    private PostgreSQLContainer<?> postgres;
+    private ConfigurableApplicationContext context;
+    private ExecutorService clientExecutor;
+    private HttpClient httpClient;
+    private HttpRequest request;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        postgres = new PostgreSQLContainer<>("postgres:latest")
+                .withDatabaseName("customer")
+                .withUsername("msbeigi")
+                .withPassword("password");
+        postgres.start();
+
+        context = new SpringApplicationBuilder(Main.class)
+                .properties(
+                        "server.port=0",
+                        "server.tomcat.max-connections=" + (clients + 1_000),
+                        "server.tomcat.accept-count=" + clients,
+                        "spring.datasource.url=" + postgres.getJdbcUrl(),
+                        "spring.datasource.username=" + postgres.getUsername(),
+                        "spring.datasource.password=" + postgres.getPassword(),
+                        "aws.s3.cache.enabled=false",
+                        "customer.cache.maximum-size=0",
+                        "jwt.cache.maximum-size=0",
+                        "threads.virtual.enabled=" + threads.equals("virtual")
+                )
+                .run();
+
+        String email = "saturation@benchmark.com";
+        context.getBean(CustomerService.class).addCustomer(
+                new CustomerRegistrationRequest("Benchmark", email, "password", 30, Gender.MALE));
+        Integer id = BeanFactoryAnnotationUtils
+                .qualifiedBeanOfType(context.getBeanFactory(), CustomerDao.class, "jdbc")
+                .selectUserByEmail(email)
+                .orElseThrow()
+                .getId();
+        String token = context.getBean(JWTUtil.class).issueToken(email, "ROLE_USER");
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+
+        clientExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        httpClient = HttpClient.newBuilder()
+                .executor(clientExecutor)
+                .connectTimeout(Duration.ofSeconds(30))
+                .build();
+        request = HttpRequest.newBuilder(URI.create("http://localhost:%s/api/v1/customers/%s".formatted(port, id)))
+                .header("Authorization", "Bearer " + token)
+                .timeout(Duration.ofSeconds(60))
+                .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        clientExecutor.shutdownNow();
+        context.close();
+        postgres.stop();
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Requests {
+        // completed on the http client's threads
+        private final AtomicLong ok = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            ok.set(0);
+            failed.set(0);
+        }
+
+        public long ok() {
+            return ok.get();
+        }
+
+        public long failed() {
+            return failed.get();
+        }
+    }
+
+    // one wave is every client sending one request at the same time
+    @Benchmark
+    public void wave(Requests requests) {
+        CompletableFuture<?>[] responses = new CompletableFuture<?>[clients];
+        for (int i = 0; i < clients; i++) {
+            responses[i] = httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .handle((response, e) -> {
+                        if (e == null && response.statusCode() == 200) {
+                            requests.ok.incrementAndGet();
+                        } else {
+                            requests.failed.incrementAndGet();
+                        }
+                        return null;
+                    });
+        }
+        CompletableFuture.allOf(responses).join();
+    }
+}
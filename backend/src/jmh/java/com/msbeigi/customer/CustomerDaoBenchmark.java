@@ -0,0 +1,158 @@
+package com.msbeigi.customer;
+
+import com.msbeigi.Main;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.beans.factory.annotation.BeanFactoryAnnotationUtils;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Drives one CustomerDao implementation per fork through the same workload against a
+ * Testcontainers Postgres seeded with `customers` rows. Needs Docker.
+ *
+ *   mvn -Pjmh test-compile exec:exec -Djmh.args="CustomerDaoBenchmark"
+ *
+ * Throughput gives ops/us, SampleTime gives p50/p99 and -prof gc gives allocations per op.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Threads(4)
+@Fork(1)
+public class CustomerDaoBenchmark {
+
+    @Param({"jdbc", "jpa", "list"})
+    private String dao;
+
+    @Param({"10000"})
+    private int customers;
+
+    private PostgreSQLContainer<?> postgres;
+    private ConfigurableApplicationContext context;
+    private CustomerDao customerDao;
+    private List<Customer> seeded;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        postgres = new PostgreSQLContainer<>("postgres:latest")
+                .withDatabaseName("customer")
+                .withUsername("msbeigi")
+                .withPassword("password");
+        postgres.start();
+
+        context = new SpringApplicationBuilder(Main.class)
+                .properties(
+                        "server.port=0",
+                        "spring.datasource.url=" + postgres.getJdbcUrl(),
+                        "spring.datasource.username=" + postgres.getUsername(),
+                        "spring.datasource.password=" + postgres.getPassword(),
+                        "aws.s3.cache.enabled=false"
+                )
+                .run();
+        customerDao = BeanFactoryAnnotationUtils.qualifiedBeanOfType(
+                context.getBeanFactory(), CustomerDao.class, dao);
+
+        for (int i = 0; i < customers; i++) {
+            customerDao.insertCustomer(newCustomer("seed-%s@benchmark.com".formatted(i)));
+        }
+        // selectAllCustomers stops at 1000 rows for jdbc and jpa, every dao has to draw from all seeded rows
+        List<Customer> all = new ArrayList<>(customers);
+        customerDao.streamAllCustomers(1000, customer -> {
+            if (customer.getEmail().startsWith("seed-")) {
+                all.add(customer);
+            }
+        });
+        seeded = List.copyOf(all);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+        postgres.stop();
+    }
+
+    @State(Scope.Thread)
+    public static class Workload {
+        private final SplittableRandom random = new SplittableRandom();
+        private final Deque<String> inserted = new ArrayDeque<>();
+    }
+
+    // 50% point reads, 20% email lookups, 15% updates, 10% inserts, 5% deletes
+    @Benchmark
+    public Object mixed(Workload workload) {
+        int roll = workload.random.nextInt(100);
+        if (roll < 50) {
+            return selectById(workload);
+        }
+        if (roll < 70) {
+            return selectByEmail(workload);
+        }
+        if (roll < 85) {
+            return update(workload);
+        }
+        if (roll < 95 || workload.inserted.isEmpty()) {
+            return insert(workload);
+        }
+        return delete(workload);
+    }
+
+    @Benchmark
+    public Optional<Customer> selectById(Workload workload) {
+        return customerDao.selectCustomerById(randomSeeded(workload).getId());
+    }
+
+    @Benchmark
+    public Optional<Customer> selectByEmail(Workload workload) {
+        return customerDao.selectUserByEmail(randomSeeded(workload).getEmail());
+    }
+
+    @Benchmark
+    public Customer update(Workload workload) {
+        Customer customer = customerDao.selectCustomerById(randomSeeded(workload).getId()).orElseThrow();
+        customer.setAge(18 + workload.random.nextInt(60));
+        // last writer wins, threads racing on the same row would otherwise fail the version check
+        customer.setVersion(null);
+        customerDao.updateCustomer(customer);
+        return customer;
+    }
+
+    @Benchmark
+    public String insertAndDelete(Workload workload) {
+        insert(workload);
+        return delete(workload);
+    }
+
+    private String insert(Workload workload) {
+        String email = "%s@benchmark.com".formatted(UUID.randomUUID());
+        customerDao.insertCustomer(newCustomer(email));
+        workload.inserted.push(email);
+        return email;
+    }
+
+    private String delete(Workload workload) {
+        String email = workload.inserted.pop();
+        customerDao.selectUserByEmail(email)
+                .ifPresent(customer -> customerDao.deleteCustomerById(customer.getId()));
+        return email;
+    }
+
+    private Customer randomSeeded(Workload workload) {
+        return seeded.get(workload.random.nextInt(seeded.size()));
+    }
+
+    private static Customer newCustomer(String email) {
+        return new Customer("Benchmark", email, "password", 30, Gender.MALE);
+    }
+}
@@ -0,0 +1,86 @@
+package com.msbeigi.customer;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// boxed HashMap<Integer, Customer> against the int-keyed map backing the list dao.
+// run with -prof gc (the default) and compare gc.alloc.rate.norm and gc.count.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class CustomerIdMapBenchmark {
+
+    @Param({"10000000"})
+    private int entries;
+
+    // values are shared, only the index itself should show up in the allocation numbers
+    private final Customer[] customers = new Customer[1024];
+
+    private Map<Integer, Customer> hashMap;
+    private IntObjectHashMap<Customer> intObjectHashMap;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        for (int i = 0; i < customers.length; i++) {
+            customers[i] = new Customer(i, "Benchmark", i + "@benchmark.com", "password", 30, Gender.MALE);
+        }
+        hashMap = populateHashMap();
+        intObjectHashMap = populateIntObjectHashMap();
+    }
+
+    @State(Scope.Thread)
+    public static class Keys {
+        private final SplittableRandom random = new SplittableRandom();
+    }
+
+    @Benchmark
+    public Customer hashMapGet(Keys keys) {
+        return hashMap.get(keys.random.nextInt(1, entries + 1));
+    }
+
+    @Benchmark
+    public Customer intObjectHashMapGet(Keys keys) {
+        return intObjectHashMap.get(keys.random.nextInt(1, entries + 1));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 5)
+    public Object hashMapPopulate() {
+        return populateHashMap();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 5)
+    public Object intObjectHashMapPopulate() {
+        return populateIntObjectHashMap();
+    }
+
+    private Map<Integer, Customer> populateHashMap() {
+        Map<Integer, Customer> map = new HashMap<>();
+        for (int id = 1; id <= entries; id++) {
+            map.put(id, customers[id & (customers.length - 1)]);
+        }
+        return map;
+    }
+
+    private IntObjectHashMap<Customer> populateIntObjectHashMap() {
+        IntObjectHashMap<Customer> map = new IntObjectHashMap<>();
+        for (int id = 1; id <= entries; id++) {
+            map.put(id, customers[id & (customers.length - 1)]);
+        }
+        return map;
+    }
+}
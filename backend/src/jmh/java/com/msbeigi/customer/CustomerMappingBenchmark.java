@@ -0,0 +1,80 @@
+package com.msbeigi.customer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CustomerMappingBenchmark {
+
+    private final CustomerDTOMapper customerDTOMapper = new CustomerDTOMapper();
+    private final CustomerRowMapper customerRowMapper = new CustomerRowMapper();
+    private final ObjectWriter customerDTOWriter = new ObjectMapper().writerFor(CustomerDTO.class);
+
+    private Customer customer;
+    private CustomerDTO customerDTO;
+    private ResultSet resultSet;
+
+    @Setup
+    public void setUp() {
+        customer = new Customer(
+                1,
+                "Alex",
+                "alex@gmail.com",
+                22,
+                Gender.MALE,
+                "$2a$10$7EqJtq98hPqEX7fNZaFWoO",
+                "f1b7a0c2-3d4e-4f5a-9b6c-7d8e9f0a1b2c"
+        );
+        customerDTO = customerDTOMapper.apply(customer);
+        resultSet = resultSet(Map.of(
+                "id", 1,
+                "name", "Alex",
+                "email", "alex@gmail.com",
+                "age", 22,
+                "gender", "MALE",
+                "password", "$2a$10$7EqJtq98hPqEX7fNZaFWoO",
+                "profile_image_id", "f1b7a0c2-3d4e-4f5a-9b6c-7d8e9f0a1b2c",
+                "version", 0
+        ));
+    }
+
+    @Benchmark
+    public CustomerDTO dtoMapperApply() {
+        return customerDTOMapper.apply(customer);
+    }
+
+    @Benchmark
+    public Customer rowMapperMapRow() throws SQLException {
+        return customerRowMapper.mapRow(resultSet, 0);
+    }
+
+    @Benchmark
+    public byte[] jacksonWriteCustomerDTO() throws Exception {
+        return customerDTOWriter.writeValueAsBytes(customerDTO);
+    }
+
+    // a single row backed by a map, so the benchmark measures the mapper and not a driver
+    private static ResultSet resultSet(Map<String, Object> row) {
+        return (ResultSet) Proxy.newProxyInstance(
+                ResultSet.class.getClassLoader(),
+                new Class<?>[]{ResultSet.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "getInt" -> (Integer) row.get((String) args[0]);
+                    case "getString" -> (String) row.get((String) args[0]);
+                    default -> throw new UnsupportedOperationException(method.getName());
+                }
+        );
+    }
+}
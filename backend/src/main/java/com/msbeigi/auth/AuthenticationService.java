@@ -4,12 +4,14 @@ import com.msbeigi.customer.Customer;
 import com.msbeigi.customer.CustomerDTO;
 import com.msbeigi.customer.CustomerDTOMapper;
 import com.msbeigi.jwt.JWTUtil;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Service;
 
 @Service
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class AuthenticationService {
 
     private final AuthenticationManager authenticationManager;
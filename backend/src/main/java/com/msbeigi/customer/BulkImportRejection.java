@@ -0,0 +1,7 @@
+package com.msbeigi.customer;
+
+public record BulkImportRejection(
+        long row,
+        String email,
+        String reason) {
+}
@@ -0,0 +1,10 @@
+package com.msbeigi.customer;
+
+import java.util.List;
+
+public record BulkImportResult(
+        long received,
+        long imported,
+        long rejected,
+        List<BulkImportRejection> rejections) {
+}
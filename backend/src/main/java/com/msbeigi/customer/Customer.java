@@ -16,20 +16,18 @@ import java.util.Objects;
                 @UniqueConstraint(
                         name = "customer_email_unique",
                         columnNames = "email"
-                ),
-                @UniqueConstraint(
-                        name = "profile_image_id_unique",
-                        columnNames = "profile_image_id"
                 )
         }
 )
 public class Customer implements UserDetails {
 
+    static final int ID_ALLOCATION_SIZE = 50;
+
     @Id
     @SequenceGenerator(
             name = "customer_id_seq",
             sequenceName = "customer_id_seq",
-            allocationSize = 1
+            allocationSize = ID_ALLOCATION_SIZE
     )
     @GeneratedValue(
             strategy = GenerationType.SEQUENCE,
@@ -68,10 +66,16 @@ public class Customer implements UserDetails {
 
     @Column(
             name = "profile_image_id",
-            unique = true
+            length = 64
     )
     private String profileImageId;
 
+    @Version
+    @Column(
+            nullable = false
+    )
+    private Integer version;
+
     public Customer() {
     }
 
@@ -103,6 +107,21 @@ public class Customer implements UserDetails {
         this.gender = gender;
     }
 
+    // callers mutate the customers they get back, stores never hand out their own instance
+    static Customer copyOf(Customer customer) {
+        Customer copy = new Customer(
+                customer.getId(),
+                customer.getName(),
+                customer.getEmail(),
+                customer.getAge(),
+                customer.getGender(),
+                customer.getPassword(),
+                customer.getProfileImageId()
+        );
+        copy.setVersion(customer.getVersion());
+        return copy;
+    }
+
     public Integer getId() {
         return id;
     }
@@ -186,6 +205,14 @@ public class Customer implements UserDetails {
         this.profileImageId = profileImageId;
     }
 
+    public Integer getVersion() {
+        return version;
+    }
+
+    public void setVersion(Integer version) {
+        this.version = version;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
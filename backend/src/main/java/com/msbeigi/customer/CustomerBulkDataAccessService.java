@@ -0,0 +1,69 @@
+package com.msbeigi.customer;
+
+import org.postgresql.PGConnection;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+@Repository
+public class CustomerBulkDataAccessService {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final CustomerIdAllocator customerIdAllocator;
+
+    public CustomerBulkDataAccessService(JdbcTemplate jdbcTemplate, CustomerIdAllocator customerIdAllocator) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.customerIdAllocator = customerIdAllocator;
+    }
+
+    // returns the emails that were inserted, rows whose email is already taken are skipped
+    @Transactional
+    public Set<String> copyCustomers(List<Customer> customers) {
+        jdbcTemplate.execute("""
+                CREATE TEMP TABLE customer_import (
+                    line BIGINT, id BIGINT, name TEXT, email TEXT, password TEXT, gender TEXT, age INT
+                ) ON COMMIT DROP
+                """);
+
+        StringBuilder csv = new StringBuilder(customers.size() * 128);
+        for (int i = 0; i < customers.size(); i++) {
+            Customer customer = customers.get(i);
+            csv.append(i).append(',')
+                    .append(customerIdAllocator.nextId()).append(',')
+                    .append(quote(customer.getName())).append(',')
+                    .append(quote(customer.getEmail())).append(',')
+                    .append(quote(customer.getPassword())).append(',')
+                    .append(customer.getGender().name()).append(',')
+                    .append(customer.getAge()).append('\n');
+        }
+        jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+            try {
+                return connection.unwrap(PGConnection.class)
+                        .getCopyAPI()
+                        .copyIn("COPY customer_import FROM STDIN (FORMAT csv)", new StringReader(csv.toString()));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+
+        // ordered by line so the first of several rows with the same email is the one kept
+        return new HashSet<>(jdbcTemplate.queryForList("""
+                INSERT INTO customer (id, name, email, password, gender, age)
+                SELECT id, name, email, password, gender, age FROM customer_import ORDER BY line
+                ON CONFLICT (email) DO NOTHING
+                RETURNING email
+                """, String.class));
+    }
+
+    private static String quote(String value) {
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
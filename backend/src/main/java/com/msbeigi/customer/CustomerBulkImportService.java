@@ -0,0 +1,213 @@
+package com.msbeigi.customer;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import com.msbeigi.security.BoundedPasswordEncoder;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+@Service
+public class CustomerBulkImportService {
+
+    private final CustomerBulkDataAccessService customerBulkDao;
+    private final BoundedPasswordEncoder passwordEncoder;
+    private final EmailBloomFilter emailBloomFilter;
+    private final ObjectMapper objectMapper;
+    private final CsvMapper csvMapper = new CsvMapper();
+    private final int chunkSize;
+    private final int maxReportedRejections;
+
+    public CustomerBulkImportService(CustomerBulkDataAccessService customerBulkDao,
+                                     BoundedPasswordEncoder passwordEncoder,
+                                     EmailBloomFilter emailBloomFilter,
+                                     ObjectMapper objectMapper,
+                                     @Value("${customer.bulk-import.chunk-size}") int chunkSize,
+                                     @Value("${customer.bulk-import.max-reported-rejections}") int maxReportedRejections) {
+        this.customerBulkDao = customerBulkDao;
+        this.passwordEncoder = passwordEncoder;
+        this.emailBloomFilter = emailBloomFilter;
+        this.objectMapper = objectMapper;
+        this.chunkSize = chunkSize;
+        this.maxReportedRejections = maxReportedRejections;
+    }
+
+    public BulkImportResult importCsv(InputStream inputStream) {
+        Import result = new Import();
+        try (MappingIterator<Map<String, String>> rows = csvMapper
+                .readerForMapOf(String.class)
+                .with(CsvSchema.emptySchema().withHeader())
+                .readValues(inputStream)) {
+            long row = 0;
+            while (true) {
+                Map<String, String> fields;
+                try {
+                    if (!rows.hasNextValue()) {
+                        break;
+                    }
+                    fields = rows.nextValue();
+                } catch (IOException | RuntimeException e) {
+                    // the csv parser can not resync after a broken record
+                    result.rejectMalformed(row + 1, "malformed csv, import stopped");
+                    break;
+                }
+                result.accept(++row, fields);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return result.finish();
+    }
+
+    public BulkImportResult importNdjson(InputStream inputStream) {
+        Import result = new Import();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
+            long row = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                row++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                JsonNode node;
+                try {
+                    node = objectMapper.readTree(line);
+                } catch (IOException e) {
+                    result.rejectMalformed(row, "malformed json");
+                    continue;
+                }
+                if (!node.isObject()) {
+                    result.rejectMalformed(row, "malformed json");
+                    continue;
+                }
+                Map<String, String> fields = new HashMap<>();
+                node.fields().forEachRemaining(field ->
+                        fields.put(field.getKey(), field.getValue().isNull() ? null : field.getValue().asText()));
+                result.accept(row, fields);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return result.finish();
+    }
+
+    private record Row(long row, String name, String email, String password, Integer age, Gender gender) {
+    }
+
+    // state of one upload, rows are buffered and flushed a chunk at a time
+    private class Import {
+        private final List<Row> chunk = new ArrayList<>(chunkSize);
+        private final List<BulkImportRejection> rejections = new ArrayList<>();
+        private long received;
+        private long imported;
+        private long rejected;
+
+        void accept(long row, Map<String, String> fields) {
+            received++;
+            String name = fields.get("name");
+            String email = fields.get("email");
+            String password = fields.get("password");
+            if (StringUtils.isBlank(name)) {
+                reject(row, email, "missing name");
+                return;
+            }
+            if (StringUtils.isBlank(email)) {
+                reject(row, null, "missing email");
+                return;
+            }
+            if (StringUtils.isBlank(password)) {
+                reject(row, email, "missing password");
+                return;
+            }
+            Integer age = parseAge(fields.get("age"));
+            if (age == null) {
+                reject(row, email, "invalid age [%s]".formatted(fields.get("age")));
+                return;
+            }
+            Gender gender = parseGender(fields.get("gender"));
+            if (gender == null) {
+                reject(row, email, "invalid gender [%s]".formatted(fields.get("gender")));
+                return;
+            }
+
+            chunk.add(new Row(row, name, email, password, age, gender));
+            if (chunk.size() >= chunkSize) {
+                flush();
+            }
+        }
+
+        void rejectMalformed(long row, String reason) {
+            received++;
+            reject(row, null, reason);
+        }
+
+        void reject(long row, String email, String reason) {
+            rejected++;
+            if (rejections.size() < maxReportedRejections) {
+                rejections.add(new BulkImportRejection(row, email, reason));
+            }
+        }
+
+        BulkImportResult finish() {
+            flush();
+            return new BulkImportResult(received, imported, rejected, List.copyOf(rejections));
+        }
+
+        private void flush() {
+            if (chunk.isEmpty()) {
+                return;
+            }
+            List<String> hashes = passwordEncoder.encodeAll(chunk.stream().map(Row::password).toList());
+            List<Customer> customers = new ArrayList<>(chunk.size());
+            for (int i = 0; i < chunk.size(); i++) {
+                Row row = chunk.get(i);
+                customers.add(new Customer(row.name(), row.email(), hashes.get(i), row.age(), row.gender()));
+            }
+
+            Set<String> inserted = customerBulkDao.copyCustomers(customers);
+            for (Row row : chunk) {
+                // remove so a later row with the same email in this chunk counts as a duplicate
+                if (inserted.remove(row.email())) {
+                    imported++;
+                    emailBloomFilter.put(row.email());
+                } else {
+                    reject(row.row(), row.email(), "email already taken");
+                }
+            }
+            chunk.clear();
+        }
+    }
+
+    private static Integer parseAge(String value) {
+        try {
+            int age = Integer.parseInt(StringUtils.trimToEmpty(value));
+            return age > 0 ? age : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static Gender parseGender(String value) {
+        try {
+            return Gender.valueOf(StringUtils.trimToEmpty(value).toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.msbeigi.customer;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+@Repository("cached")
+public class CustomerCachingDataAccessService implements CustomerDao {
+
+    private final CustomerDao delegate;
+    private final Cache<Integer, Customer> customersById;
+    private final Cache<String, Integer> customerIdsByEmail;
+    // bumped on every invalidation, a row read by email is only cached when none happened meanwhile
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public CustomerCachingDataAccessService(@Qualifier("jdbc") CustomerDao delegate,
+                                            MeterRegistry meterRegistry,
+                                            @Value("${customer.cache.maximum-size}") long maximumSize,
+                                            @Value("${customer.cache.ttl}") Duration ttl) {
+        this.delegate = delegate;
+        this.customersById = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        this.customerIdsByEmail = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, customersById, "customer.by-id");
+        CaffeineCacheMetrics.monitor(meterRegistry, customerIdsByEmail, "customer.by-email");
+    }
+
+    @Override
+    public List<Customer> selectAllCustomers() {
+        return delegate.selectAllCustomers();
+    }
+
+    @Override
+    public List<Customer> selectCustomersAfterId(Integer id, int limit) {
+        return delegate.selectCustomersAfterId(id, limit);
+    }
+
+    @Override
+    public void streamAllCustomers(int fetchSize, Consumer<Customer> consumer) {
+        delegate.streamAllCustomers(fetchSize, consumer);
+    }
+
+    @Override
+    public void streamAllEmails(int fetchSize, Consumer<String> consumer) {
+        delegate.streamAllEmails(fetchSize, consumer);
+    }
+
+    @Override
+    public Optional<Customer> selectCustomerById(Integer id) {
+        // an invalidate of the id waits for the in-flight load, so an old row never outlives it
+        Customer customer = customersById.get(id, key -> delegate.selectCustomerById(key)
+                .map(Customer::copyOf)
+                .orElse(null));
+        if (customer == null) {
+            return Optional.empty();
+        }
+        customerIdsByEmail.put(customer.getEmail(), customer.getId());
+        return Optional.of(Customer.copyOf(customer));
+    }
+
+    @Override
+    public void insertCustomer(Customer customer) {
+        delegate.insertCustomer(customer);
+        customerIdsByEmail.invalidate(customer.getEmail());
+    }
+
+    @Override
+    public int[] insertCustomers(List<Customer> customers) {
+        int[] result = delegate.insertCustomers(customers);
+        customers.forEach(customer -> customerIdsByEmail.invalidate(customer.getEmail()));
+        return result;
+    }
+
+    @Override
+    public boolean existCustomerWithEmail(String email) {
+        return cachedByEmail(email).isPresent() || delegate.existCustomerWithEmail(email);
+    }
+
+    @Override
+    public void deleteCustomerById(Integer id) {
+        delegate.deleteCustomerById(id);
+        invalidateById(id);
+    }
+
+    @Override
+    public boolean existCustomerById(Integer customerId) {
+        return customersById.getIfPresent(customerId) != null || delegate.existCustomerById(customerId);
+    }
+
+    @Override
+    public void updateCustomer(Customer customer) {
+        delegate.updateCustomer(customer);
+        invalidateById(customer.getId());
+        if (customer.getEmail() != null) {
+            customerIdsByEmail.invalidate(customer.getEmail());
+        }
+    }
+
+    @Override
+    public int[] updateCustomers(List<Customer> customers) {
+        int[] result = delegate.updateCustomers(customers);
+        for (Customer customer : customers) {
+            invalidateById(customer.getId());
+            if (customer.getEmail() != null) {
+                customerIdsByEmail.invalidate(customer.getEmail());
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Optional<Customer> selectUserByEmail(String email) {
+        Optional<Customer> cached = cachedByEmail(email);
+        if (cached.isPresent()) {
+            return cached.map(Customer::copyOf);
+        }
+        long seen = invalidations.get();
+        Optional<Customer> customer = delegate.selectUserByEmail(email);
+        customer.ifPresent(c -> cacheUnlessInvalidatedSince(c, seen));
+        return customer.map(Customer::copyOf);
+    }
+
+    @Override
+    public void updateCustomerProfileImageId(String profileImageId, Integer customerId) {
+        delegate.updateCustomerProfileImageId(profileImageId, customerId);
+        invalidateById(customerId);
+    }
+
+    private void invalidateById(Integer id) {
+        evict(id);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // inside a transaction a concurrent read may cache the old row again before the commit
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict(id);
+                }
+            });
+        }
+    }
+
+    private void evict(Integer id) {
+        invalidations.incrementAndGet();
+        customersById.invalidate(id);
+    }
+
+    private Optional<Customer> cachedByEmail(String email) {
+        Integer id = customerIdsByEmail.getIfPresent(email);
+        if (id == null) {
+            return Optional.empty();
+        }
+        Customer customer = customersById.getIfPresent(id);
+        if (customer == null || !customer.getEmail().equals(email)) {
+            // the customer changed its email or was evicted since the mapping was cached
+            customerIdsByEmail.invalidate(email);
+            return Optional.empty();
+        }
+        return Optional.of(customer);
+    }
+
+    private void cacheUnlessInvalidatedSince(Customer customer, long seen) {
+        // checked under the entry's lock, an eviction either came earlier and skips the put or removes it after
+        customersById.asMap().compute(customer.getId(), (id, cached) ->
+                invalidations.get() == seen ? Customer.copyOf(customer) : cached);
+        customerIdsByEmail.put(customer.getEmail(), customer.getId());
+    }
+}
@@ -1,24 +1,42 @@
 package com.msbeigi.customer;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.msbeigi.jwt.JWTUtil;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @RequestMapping("api/v1/customers")
 public class CustomerController {
 
     private final CustomerService customerService;
+    private final CustomerBulkImportService customerBulkImportService;
     private final JWTUtil jwtUtil;
+    private final ObjectMapper objectMapper;
 
-    public CustomerController(CustomerService customerService, JWTUtil jwtUtil) {
+    public CustomerController(CustomerService customerService,
+                              CustomerBulkImportService customerBulkImportService,
+                              JWTUtil jwtUtil,
+                              ObjectMapper objectMapper) {
         this.customerService = customerService;
+        this.customerBulkImportService = customerBulkImportService;
         this.jwtUtil = jwtUtil;
+        this.objectMapper = objectMapper;
     }
 
 
@@ -27,6 +45,34 @@ public class CustomerController {
         return customerService.getAllCustomers();
     }
 
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public StreamingResponseBody streamCustomers() {
+        return outputStream -> customerService.exportAllCustomers(customer -> {
+            try {
+                outputStream.write(objectMapper.writeValueAsBytes(customer));
+                outputStream.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    @GetMapping(params = "limit")
+    public CustomerPage getCustomerPage(@RequestParam(value = "after", required = false) String after,
+                                        @RequestParam("limit") int limit) {
+        return customerService.getCustomerPage(after, limit);
+    }
+
+    @PostMapping(value = "/bulk", consumes = "text/csv")
+    public BulkImportResult importCustomersCsv(InputStream body) {
+        return customerBulkImportService.importCsv(body);
+    }
+
+    @PostMapping(value = "/bulk", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public BulkImportResult importCustomersNdjson(InputStream body) {
+        return customerBulkImportService.importNdjson(body);
+    }
+
     @GetMapping("/{id}")
     public CustomerDTO getCustomerById(@PathVariable("id") Integer id) {
         return customerService.getCustomerById(id);
@@ -56,34 +102,57 @@ public class CustomerController {
             value = "{customerId}/profile-image",
             consumes = MediaType.MULTIPART_FORM_DATA_VALUE
     )
-    public void uploadCustomerProfileImage(
+    public CompletableFuture<Void> uploadCustomerProfileImage(
             @PathVariable("customerId") Integer customerId,
             @RequestParam("file") MultipartFile file
     ) {
-        customerService.uploadCustomerProfileImage(customerId, file);
+        // the request thread is released while s3 receives the file
+        return customerService.uploadCustomerProfileImage(customerId, file);
     }
 
     @GetMapping(
             value = "{customerId}/profile-image",
             produces = MediaType.IMAGE_JPEG_VALUE
     )
-    public byte[] getCustomerProfileImage(@PathVariable("customerId") Integer customerId) {
-        return customerService.getCustomerProfileImage(customerId);
+    public ResponseEntity<StreamingResponseBody> getCustomerProfileImage(
+            @PathVariable("customerId") Integer customerId,
+            @RequestParam(value = "v", required = false) String version,
+            @RequestParam(value = "size", required = false) Integer size,
+            @RequestHeader HttpHeaders requestHeaders) {
+        String profileImageId = customerService.getCustomerProfileImageId(customerId);
+
+        // the bytes behind a profileImageId never change, but this url serves a new id after an upload.
+        // only urls pinned to the current id with ?v= may be cached without revalidation
+        boolean pinned = profileImageId.equals(version);
+        String eTag = ProfileImageHeaders.eTag(profileImageId, size);
+        if (ProfileImageHeaders.matchesETag(requestHeaders.getIfNoneMatch(), eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(eTag)
+                    .cacheControl(ProfileImageHeaders.cacheControl(pinned))
+                    .build();
+        }
+
+        HttpRange range = ProfileImageHeaders.range(requestHeaders, eTag);
+        ProfileImage image = customerService.getCustomerProfileImage(customerId, profileImageId, size, range);
+        // a full size fallback for a missing variant must not stick to the sized url
+        boolean exact = Objects.equals(size, image.size());
+        ResponseEntity.BodyBuilder response = image.contentRange() == null
+                ? ResponseEntity.ok()
+                : ResponseEntity.status(HttpStatus.PARTIAL_CONTENT)
+                        .header(HttpHeaders.CONTENT_RANGE, image.contentRange().headerValue());
+        response.eTag(ProfileImageHeaders.eTag(profileImageId, image.size()))
+                .cacheControl(ProfileImageHeaders.cacheControl(pinned && exact))
+                .header(HttpHeaders.ACCEPT_RANGES, "bytes");
+        if (image.contentLength() != null) {
+            response.contentLength(image.contentLength());
+        }
+        if (image.lastModified() != null) {
+            response.lastModified(image.lastModified());
+        }
+        return response.body(outputStream -> {
+            try (InputStream content = image.content()) {
+                content.transferTo(outputStream);
+            }
+        });
     }
 }
-
-
-
-
-
-
-
-
-
-
-
-
-
-
-
-
@@ -0,0 +1,32 @@
+package com.msbeigi.customer;
+
+import com.msbeigi.exception.RequestValidationException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+public final class CustomerCursor {
+
+    private static final int FIRST_PAGE = 0;
+
+    private CustomerCursor() {
+    }
+
+    public static String encode(Integer lastId) {
+        return Base64.getUrlEncoder()
+                .withoutPadding()
+                .encodeToString(String.valueOf(lastId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static Integer decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return FIRST_PAGE;
+        }
+        try {
+            byte[] bytes = Base64.getUrlDecoder().decode(cursor);
+            return Integer.parseInt(new String(bytes, StandardCharsets.UTF_8));
+        } catch (IllegalArgumentException e) {
+            throw new RequestValidationException("invalid cursor [%s]".formatted(cursor));
+        }
+    }
+}
@@ -21,7 +21,8 @@ public class CustomerDTOMapper implements Function<Customer, CustomerDTO> {
                         .map(GrantedAuthority::getAuthority)
                         .collect(Collectors.toList()),
                 customer.getUsername(),
-                customer.getProfileImageId()
+                customer.getProfileImageId(),
+                customer.getVersion()
         );
     }
 }
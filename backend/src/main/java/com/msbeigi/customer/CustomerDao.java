@@ -2,15 +2,21 @@ package com.msbeigi.customer;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface CustomerDao {
     List<Customer> selectAllCustomers();
+    List<Customer> selectCustomersAfterId(Integer id, int limit);
+    void streamAllCustomers(int fetchSize, Consumer<Customer> consumer);
+    void streamAllEmails(int fetchSize, Consumer<String> consumer);
     Optional<Customer> selectCustomerById(Integer id);
     void insertCustomer(Customer customer);
+    int[] insertCustomers(List<Customer> customers);
     boolean existCustomerWithEmail(String email);
     void deleteCustomerById(Integer id);
     boolean existCustomerById(Integer customerId);
     void updateCustomer(Customer customer);
+    int[] updateCustomers(List<Customer> customers);
     Optional<Customer> selectUserByEmail(String email);
     void updateCustomerProfileImageId(String profileImageId, Integer customerId);
 }
@@ -0,0 +1,96 @@
+package com.msbeigi.customer;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.framework.Advised;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+// times every CustomerDao call as customer.dao, tagged with the dao bean name, the method and the outcome
+@Component
+public class CustomerDaoMetricsPostProcessor implements BeanPostProcessor {
+
+    // post processors are created early, the registry is only looked up once a dao is called
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+
+    public CustomerDaoMetricsPostProcessor(ObjectProvider<MeterRegistry> meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (!(bean instanceof CustomerDao)) {
+            return bean;
+        }
+        MethodInterceptor interceptor = new TimingInterceptor(beanName, meterRegistry);
+        // @Transactional daos are proxied already, time them outermost so the commit is included
+        if (bean instanceof Advised advised && !advised.isFrozen()) {
+            advised.addAdvice(0, interceptor);
+            return bean;
+        }
+        ProxyFactory proxyFactory = new ProxyFactory(bean);
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAdvice(interceptor);
+        return proxyFactory.getProxy(bean.getClass().getClassLoader());
+    }
+
+    private static final class TimingInterceptor implements MethodInterceptor {
+
+        private static final Timers UNTIMED = new Timers(null, null);
+
+        private final String dao;
+        private final ObjectProvider<MeterRegistry> meterRegistry;
+        private final Map<Method, Timers> timers = new ConcurrentHashMap<>();
+
+        private TimingInterceptor(String dao, ObjectProvider<MeterRegistry> meterRegistry) {
+            this.dao = dao;
+            this.meterRegistry = meterRegistry;
+        }
+
+        @Override
+        public Object invoke(MethodInvocation invocation) throws Throwable {
+            Timers methodTimers = timers.computeIfAbsent(invocation.getMethod(), this::timersFor);
+            if (methodTimers == UNTIMED) {
+                return invocation.proceed();
+            }
+            long start = System.nanoTime();
+            try {
+                Object result = invocation.proceed();
+                methodTimers.success().record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                return result;
+            } catch (Throwable e) {
+                methodTimers.error().record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                throw e;
+            }
+        }
+
+        // only the CustomerDao contract is timed, not toString and friends
+        private Timers timersFor(Method method) {
+            if (ReflectionUtils.findMethod(CustomerDao.class, method.getName(), method.getParameterTypes()) == null) {
+                return UNTIMED;
+            }
+            return new Timers(timer(method, "success"), timer(method, "error"));
+        }
+
+        private Timer timer(Method method, String outcome) {
+            return Timer.builder("customer.dao")
+                    .tag("dao", dao)
+                    .tag("method", method.getName())
+                    .tag("outcome", outcome)
+                    .register(meterRegistry.getObject());
+        }
+    }
+
+    private record Timers(Timer success, Timer error) {
+    }
+}
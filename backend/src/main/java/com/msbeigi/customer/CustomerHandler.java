@@ -0,0 +1,113 @@
+package com.msbeigi.customer;
+
+import com.msbeigi.exception.RequestValidationException;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+
+import java.util.Objects;
+
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class CustomerHandler {
+
+    private final ReactiveCustomerService customerService;
+
+    public CustomerHandler(ReactiveCustomerService customerService) {
+        this.customerService = customerService;
+    }
+
+    public Mono<ServerResponse> getCustomers(ServerRequest request) {
+        return ServerResponse.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(customerService.getAllCustomers(), CustomerDTO.class);
+    }
+
+    public Mono<ServerResponse> streamCustomers(ServerRequest request) {
+        return ServerResponse.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(customerService.exportAllCustomers(), CustomerDTO.class);
+    }
+
+    public Mono<ServerResponse> getCustomerPage(ServerRequest request) {
+        return Mono.fromCallable(() -> integerParam(request, "limit"))
+                .flatMap(limit -> customerService.getCustomerPage(
+                        request.queryParam("after").orElse(null), limit))
+                .flatMap(page -> ServerResponse.ok()
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .bodyValue(page));
+    }
+
+    public Mono<ServerResponse> getCustomerById(ServerRequest request) {
+        return Mono.fromCallable(() -> customerId(request))
+                .flatMap(customerService::getCustomerById)
+                .flatMap(customer -> ServerResponse.ok()
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .bodyValue(customer));
+    }
+
+    public Mono<ServerResponse> getCustomerProfileImage(ServerRequest request) {
+        Integer customerId;
+        Integer size;
+        try {
+            customerId = customerId(request);
+            size = request.queryParam("size").isPresent() ? integerParam(request, "size") : null;
+        } catch (RequestValidationException e) {
+            return Mono.error(e);
+        }
+        String version = request.queryParam("v").orElse(null);
+
+        return customerService.getCustomerProfileImageId(customerId).flatMap(profileImageId -> {
+            // same caching rules as v1, see CustomerController#getCustomerProfileImage
+            boolean pinned = profileImageId.equals(version);
+            String eTag = ProfileImageHeaders.eTag(profileImageId, size);
+            if (ProfileImageHeaders.matchesETag(request.headers().asHttpHeaders().getIfNoneMatch(), eTag)) {
+                return ServerResponse.status(HttpStatus.NOT_MODIFIED)
+                        .eTag(eTag)
+                        .cacheControl(ProfileImageHeaders.cacheControl(pinned))
+                        .build();
+            }
+
+            return customerService.getCustomerProfileImage(customerId, profileImageId, size).flatMap(image -> {
+                boolean exact = Objects.equals(size, image.size());
+                ServerResponse.BodyBuilder response = ServerResponse.ok()
+                        .contentType(MediaType.IMAGE_JPEG)
+                        .eTag(ProfileImageHeaders.eTag(profileImageId, image.size()))
+                        .cacheControl(ProfileImageHeaders.cacheControl(pinned && exact));
+                if (image.contentLength() != null) {
+                    response.contentLength(image.contentLength());
+                }
+                if (image.lastModified() != null) {
+                    response.lastModified(image.lastModified());
+                }
+                // the s3 buffers are wrapped, not copied
+                return response.body(BodyInserters.fromDataBuffers(
+                        image.content().map(DefaultDataBufferFactory.sharedInstance::wrap)));
+            });
+        });
+    }
+
+    private static Integer customerId(ServerRequest request) {
+        String id = request.pathVariable("id");
+        try {
+            return Integer.valueOf(id);
+        } catch (NumberFormatException e) {
+            throw new RequestValidationException("invalid customer id [%s]".formatted(id));
+        }
+    }
+
+    private static int integerParam(ServerRequest request, String name) {
+        String value = request.queryParam(name).orElse("");
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new RequestValidationException("invalid %s [%s]".formatted(name, value));
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.msbeigi.customer;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+// hands out ids the way hibernate's pooled-lo optimizer does, so jdbc and jpa inserts share customer_id_seq
+@Component
+public class CustomerIdAllocator {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ReentrantLock lock = new ReentrantLock();
+    private long next;
+    private long limit;
+
+    public CustomerIdAllocator(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public int nextId() {
+        lock.lock();
+        try {
+            if (next >= limit) {
+                // nextval reserves [value, value + ID_ALLOCATION_SIZE)
+                Long value = jdbcTemplate.queryForObject("select nextval('customer_id_seq')", Long.class);
+                next = value;
+                limit = value + Customer.ID_ALLOCATION_SIZE;
+            }
+            return Math.toIntExact(next++);
+        } finally {
+            lock.unlock();
+        }
+    }
+}
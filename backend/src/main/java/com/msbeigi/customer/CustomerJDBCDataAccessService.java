@@ -1,37 +1,101 @@
 package com.msbeigi.customer;
 
 import com.msbeigi.exception.ResourceNotFoundException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 @Repository("jdbc")
 public class CustomerJDBCDataAccessService implements CustomerDao {
 
     private final JdbcTemplate jdbcTemplate;
     private final CustomerRowMapper customerRowMapper;
+    private final CustomerIdAllocator customerIdAllocator;
 
-    public CustomerJDBCDataAccessService(JdbcTemplate jdbcTemplate, CustomerRowMapper customerRowMapper) {
+    public CustomerJDBCDataAccessService(JdbcTemplate jdbcTemplate,
+                                         CustomerRowMapper customerRowMapper,
+                                         CustomerIdAllocator customerIdAllocator) {
         this.jdbcTemplate = jdbcTemplate;
         this.customerRowMapper = customerRowMapper;
+        this.customerIdAllocator = customerIdAllocator;
     }
 
     @Override
     public List<Customer> selectAllCustomers() {
         var sql = """
-                select id, name, email, password, age, gender, profile_image_id 
+                select id, name, email, password, age, gender, profile_image_id, version 
                 from customer
                 limit 1000;
                 """;
         return jdbcTemplate.query(sql, customerRowMapper);
     }
 
+    @Override
+    public List<Customer> selectCustomersAfterId(Integer id, int limit) {
+        var sql = """
+                select id, name, email, password, age, gender, profile_image_id, version
+                from customer
+                where id > ?
+                order by id
+                limit ?;
+                """;
+        return jdbcTemplate.query(sql, customerRowMapper, id, limit);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void streamAllCustomers(int fetchSize, Consumer<Customer> consumer) {
+        var sql = """
+                select id, name, email, password, age, gender, profile_image_id, version
+                from customer
+                order by id;
+                """;
+        // postgres only uses a server side cursor when a fetch size is set
+        // and the statement runs inside a transaction
+        jdbcTemplate.query(
+                connection -> {
+                    PreparedStatement statement = connection.prepareStatement(
+                            sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                    statement.setFetchSize(fetchSize);
+                    return statement;
+                },
+                (RowCallbackHandler) rs -> consumer.accept(customerRowMapper.mapRow(rs, rs.getRow()))
+        );
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void streamAllEmails(int fetchSize, Consumer<String> consumer) {
+        var sql = """
+                select email from customer;
+                """;
+        jdbcTemplate.query(
+                connection -> {
+                    PreparedStatement statement = connection.prepareStatement(
+                            sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                    statement.setFetchSize(fetchSize);
+                    return statement;
+                },
+                (RowCallbackHandler) rs -> consumer.accept(rs.getString("email"))
+        );
+    }
+
     @Override
     public Optional<Customer> selectCustomerById(Integer id) {
         var sql = """
-                select id, name, email, password, age, gender, profile_image_id from customer where id = ?;
+                select id, name, email, password, age, gender, profile_image_id, version from customer where id = ?;
                 """;
         return jdbcTemplate.query(sql, customerRowMapper, id)
                 .stream()
@@ -41,10 +105,47 @@ public class CustomerJDBCDataAccessService implements CustomerDao {
     @Override
     public void insertCustomer(Customer customer) {
         var sql = """
-                insert into customer(name, email, password, age, gender) values (?, ?, ?, ?, ?);
+                insert into customer(id, name, email, password, age, gender) values (?, ?, ?, ?, ?, ?);
                 """;
-        jdbcTemplate.update(sql, customer.getName(), customer.getEmail(), customer.getPassword(),
+        // ids come from the same pooled blocks as jpa instead of the column default
+        int id = customerIdAllocator.nextId();
+        jdbcTemplate.update(sql, id, customer.getName(), customer.getEmail(), customer.getPassword(),
                 customer.getAge(), customer.getGender().name());
+        customer.setId(id);
+        customer.setVersion(0);
+    }
+
+    @Override
+    public int[] insertCustomers(List<Customer> customers) {
+        var sql = """
+                insert into customer(id, name, email, password, age, gender) values (?, ?, ?, ?, ?, ?);
+                """;
+        int[] ids = new int[customers.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = customerIdAllocator.nextId();
+        }
+        int[] result = jdbcTemplate.batchUpdate(sql, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                Customer customer = customers.get(i);
+                ps.setInt(1, ids[i]);
+                ps.setString(2, customer.getName());
+                ps.setString(3, customer.getEmail());
+                ps.setString(4, customer.getPassword());
+                ps.setInt(5, customer.getAge());
+                ps.setString(6, customer.getGender().name());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return customers.size();
+            }
+        });
+        for (int i = 0; i < ids.length; i++) {
+            customers.get(i).setId(ids[i]);
+            customers.get(i).setVersion(0);
+        }
+        return result;
     }
 
     @Override
@@ -77,26 +178,71 @@ public class CustomerJDBCDataAccessService implements CustomerDao {
 
     @Override
     public void updateCustomer(Customer update) {
+        // one statement for the columns that changed, guarded by the version when the caller knows it
+        StringBuilder sql = new StringBuilder("update customer set version = version + 1");
+        List<Object> args = new ArrayList<>();
         if (update.getName() != null) {
-            String sql = "update customer set name = ? where id = ?";
-            int result = jdbcTemplate.update(sql, update.getName(), update.getId());
-            System.out.println("update customer name result = " + result);
+            sql.append(", name = ?");
+            args.add(update.getName());
         }
         if (update.getAge() != null) {
-            String sql = "update customer set age = ? where id = ?";
-            int result = jdbcTemplate.update(sql, update.getAge(), update.getId());
-            System.out.println("update customer age result = " + result);
+            sql.append(", age = ?");
+            args.add(update.getAge());
         }
         if (update.getEmail() != null) {
-            String sql = "update customer set email = ? where id = ?";
-            int result = jdbcTemplate.update(sql, update.getEmail(), update.getId());
-            System.out.println("update customer email result = " + result);
+            sql.append(", email = ?");
+            args.add(update.getEmail());
+        }
+        if (args.isEmpty()) {
+            return;
+        }
+        sql.append(" where id = ?");
+        args.add(update.getId());
+        if (update.getVersion() != null) {
+            sql.append(" and version = ?");
+            args.add(update.getVersion());
         }
+
+        int result = jdbcTemplate.update(sql.toString(), args.toArray());
+        if (result == 0) {
+            throw new OptimisticLockingFailureException(
+                    "customer with id [%s] was changed or removed by someone else".formatted(update.getId()));
+        }
+        if (update.getVersion() != null) {
+            update.setVersion(update.getVersion() + 1);
+        }
+    }
+
+    @Override
+    public int[] updateCustomers(List<Customer> customers) {
+        // null fields are left unchanged and a stale version updates nothing, same as updateCustomer
+        var sql = """
+                update customer set name = coalesce(?, name), age = coalesce(?, age), email = coalesce(?, email),
+                version = version + 1
+                where id = ? and (?::int is null or version = ?);
+                """;
+        return jdbcTemplate.batchUpdate(sql, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                Customer customer = customers.get(i);
+                ps.setObject(1, customer.getName(), Types.VARCHAR);
+                ps.setObject(2, customer.getAge(), Types.INTEGER);
+                ps.setObject(3, customer.getEmail(), Types.VARCHAR);
+                ps.setInt(4, customer.getId());
+                ps.setObject(5, customer.getVersion(), Types.INTEGER);
+                ps.setObject(6, customer.getVersion(), Types.INTEGER);
+            }
+
+            @Override
+            public int getBatchSize() {
+                return customers.size();
+            }
+        });
     }
 
     @Override
     public Optional<Customer> selectUserByEmail(String email) {
-        String sql = "select id, name, email, password, age, gender, profile_image_id from customer where email = ?";
+        String sql = "select id, name, email, password, age, gender, profile_image_id, version from customer where email = ?";
         return jdbcTemplate.query(sql, customerRowMapper, email)
                 .stream()
                 .findFirst();
@@ -2,10 +2,18 @@ package com.msbeigi.customer;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Repository("jpa")
 public class CustomerJPADataAccessService implements CustomerDao {
@@ -22,6 +30,32 @@ public class CustomerJPADataAccessService implements CustomerDao {
         return page.getContent();
     }
 
+    @Override
+    public List<Customer> selectCustomersAfterId(Integer id, int limit) {
+        return customerRepository.findByIdGreaterThanOrderByIdAsc(id, Pageable.ofSize(limit));
+    }
+
+    @Override
+    public void streamAllCustomers(int fetchSize, Consumer<Customer> consumer) {
+        Integer lastId = 0;
+        List<Customer> customers;
+        do {
+            customers = selectCustomersAfterId(lastId, fetchSize);
+            customers.forEach(consumer);
+            if (!customers.isEmpty()) {
+                lastId = customers.get(customers.size() - 1).getId();
+            }
+        } while (customers.size() == fetchSize);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void streamAllEmails(int fetchSize, Consumer<String> consumer) {
+        try (Stream<String> emails = customerRepository.streamAllEmails()) {
+            emails.forEach(consumer);
+        }
+    }
+
     @Override
     public Optional<Customer> selectCustomerById(Integer id) {
         return customerRepository.findById(id);
@@ -32,6 +66,16 @@ public class CustomerJPADataAccessService implements CustomerDao {
         customerRepository.save(customer);
     }
 
+    @Override
+    @Transactional
+    public int[] insertCustomers(List<Customer> customers) {
+        // written in hibernate.jdbc.batch_size batches when the transaction flushes
+        customerRepository.saveAll(customers);
+        int[] result = new int[customers.size()];
+        Arrays.fill(result, 1);
+        return result;
+    }
+
     @Override
     public boolean existCustomerWithEmail(String email) {
         return customerRepository.existsCustomerByEmail(email);
@@ -48,8 +92,34 @@ public class CustomerJPADataAccessService implements CustomerDao {
     }
 
     @Override
-    public void updateCustomer(Customer customer) {
-        customerRepository.save(customer);
+    @Transactional
+    public void updateCustomer(Customer update) {
+        Customer customer = customerRepository.findById(update.getId())
+                .filter(existing -> update.getVersion() == null || update.getVersion().equals(existing.getVersion()))
+                .orElseThrow(() -> new ObjectOptimisticLockingFailureException(Customer.class, update.getId()));
+        apply(update, customer);
+    }
+
+    @Override
+    @Transactional
+    public int[] updateCustomers(List<Customer> customers) {
+        // load all rows in one query, the changes are flushed in batches on commit
+        Map<Integer, Customer> existing = customerRepository.findAllById(
+                        customers.stream().map(Customer::getId).toList())
+                .stream()
+                .collect(Collectors.toMap(Customer::getId, Function.identity()));
+
+        int[] result = new int[customers.size()];
+        for (int i = 0; i < customers.size(); i++) {
+            Customer update = customers.get(i);
+            Customer customer = existing.get(update.getId());
+            if (customer != null
+                    && (update.getVersion() == null || update.getVersion().equals(customer.getVersion()))) {
+                apply(update, customer);
+                result[i] = 1;
+            }
+        }
+        return result;
     }
 
     @Override
@@ -61,4 +131,17 @@ public class CustomerJPADataAccessService implements CustomerDao {
     public void updateCustomerProfileImageId(String profileImageId, Integer customerId) {
         customerRepository.updateProfileImageId(profileImageId, customerId);
     }
+
+    // null fields are left unchanged, hibernate bumps the version when the managed entity is flushed
+    private static void apply(Customer update, Customer customer) {
+        if (update.getName() != null) {
+            customer.setName(update.getName());
+        }
+        if (update.getAge() != null) {
+            customer.setAge(update.getAge());
+        }
+        if (update.getEmail() != null) {
+            customer.setEmail(update.getEmail());
+        }
+    }
 }
@@ -1,84 +1,287 @@
 package com.msbeigi.customer;
 
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Repository;
 
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
 
 @Repository("list")
 public class CustomerListDataAccessService implements CustomerDao {
 
-    // db
-    private static List<Customer> customers;
+    // db, ids stay unboxed in the primary index and each row is a snapshot swapped with compare-and-set.
+    // updates never lock, only inserts and deletes take the write lock to change the table itself,
+    // and a deleted row is set to null before it leaves the table so a racing update can't revive it.
+    private final StampedLock structure = new StampedLock();
+    private final IntObjectHashMap<AtomicReference<Customer>> customersById = new IntObjectHashMap<>();
+    private final ConcurrentMap<String, AtomicReference<Customer>> customersByEmail = new ConcurrentHashMap<>();
+    private final AtomicInteger ids = new AtomicInteger();
 
-    static {
-        customers = new ArrayList<>();
-
-        Customer alex = new Customer(
+    public CustomerListDataAccessService() {
+        insertCustomer(new Customer(
                 1, "Alex", "alex@gmail.com", "password", 21,
-                Gender.MALE);
-
-        Customer jamila = new Customer(
+                Gender.MALE));
+        insertCustomer(new Customer(
                 2, "Jamila", "jamila@gmail.com", "password", 33,
-                Gender.MALE);
-        customers.add(alex);
-        customers.add(jamila);
+                Gender.MALE));
     }
 
     @Override
     public List<Customer> selectAllCustomers() {
+        List<Customer> customers = new ArrayList<>();
+        streamAllCustomers(0, customers::add);
         return customers;
     }
 
+    @Override
+    public List<Customer> selectCustomersAfterId(Integer id, int limit) {
+        List<Customer> customers = new ArrayList<>(limit);
+        int maxId = ids.get();
+        // ids come from a sequence, walking them beats sorting the whole table unless the range is sparse
+        if ((long) maxId - id <= 2L * customersById.size()) {
+            for (long next = (long) id + 1; next <= maxId && customers.size() < limit; next++) {
+                Customer customer = current((int) next);
+                if (customer != null) {
+                    customers.add(customer);
+                }
+            }
+        } else {
+            for (Customer customer : snapshot()) {
+                if (customer.getId() > id) {
+                    customers.add(customer);
+                }
+            }
+            customers.sort(Comparator.comparing(Customer::getId));
+        }
+        return customers.stream()
+                .limit(limit)
+                .map(Customer::copyOf)
+                .toList();
+    }
+
+    @Override
+    public void streamAllCustomers(int fetchSize, Consumer<Customer> consumer) {
+        // the consumer runs outside the lock, it may call back into the dao
+        List<Customer> customers = snapshot();
+        customers.sort(Comparator.comparing(Customer::getId));
+        customers.forEach(customer -> consumer.accept(Customer.copyOf(customer)));
+    }
+
+    @Override
+    public void streamAllEmails(int fetchSize, Consumer<String> consumer) {
+        customersByEmail.keySet().forEach(consumer);
+    }
+
     @Override
     public Optional<Customer> selectCustomerById(Integer id) {
-        return customers
-                .stream()
-                .filter(customer -> customer.getId().equals(id))
-                .findFirst();
+        return Optional.ofNullable(current(id)).map(Customer::copyOf);
     }
 
     @Override
     public void insertCustomer(Customer customer) {
-        customers.add(customer);
+        // explicit ids are kept, the generator just moves past them
+        int id = customer.getId() == null ? ids.incrementAndGet() : customer.getId();
+        ids.accumulateAndGet(id, Math::max);
+
+        Customer row = Customer.copyOf(customer);
+        row.setId(id);
+        row.setVersion(0);
+        AtomicReference<Customer> holder = new AtomicReference<>(row);
+        if (customersByEmail.putIfAbsent(row.getEmail(), holder) != null) {
+            throw new DuplicateKeyException("customer email [%s] already exists".formatted(row.getEmail()));
+        }
+
+        long stamp = structure.writeLock();
+        try {
+            if (customersById.containsKey(id)) {
+                customersByEmail.remove(row.getEmail(), holder);
+                throw new DuplicateKeyException("customer id [%s] already exists".formatted(id));
+            }
+            customersById.put(id, holder);
+        } finally {
+            structure.unlockWrite(stamp);
+        }
+        customer.setId(id);
+        customer.setVersion(0);
+    }
+
+    @Override
+    public int[] insertCustomers(List<Customer> customers) {
+        int[] result = new int[customers.size()];
+        for (int i = 0; i < customers.size(); i++) {
+            insertCustomer(customers.get(i));
+            result[i] = 1;
+        }
+        return result;
     }
 
     @Override
     public boolean existCustomerWithEmail(String email) {
-        return customers.stream()
-                .anyMatch(c -> c.getEmail().equals(email));
+        return customersByEmail.containsKey(email);
     }
 
     @Override
     public boolean existCustomerById(Integer customerId) {
-        return customers
-                .stream().anyMatch(c -> c.getId().equals(customerId));
+        return current(customerId) != null;
     }
 
     @Override
     public void deleteCustomerById(Integer id) {
-        customers.stream()
-                .filter(c -> c.getId().equals(id))
-                .findFirst()
-                .ifPresent(customers::remove);
+        AtomicReference<Customer> row = row(id);
+        if (row == null) {
+            return;
+        }
+        Customer deleted = row.getAndSet(null);
+        long stamp = structure.writeLock();
+        try {
+            if (customersById.get(id) == row) {
+                customersById.remove(id);
+            }
+        } finally {
+            structure.unlockWrite(stamp);
+        }
+        if (deleted != null) {
+            customersByEmail.remove(deleted.getEmail(), row);
+        }
     }
 
     @Override
     public void updateCustomer(Customer customer) {
-        customers.add(customer);
+        if (update(customer) == 0) {
+            throw new OptimisticLockingFailureException(
+                    "customer with id [%s] was changed or removed by someone else".formatted(customer.getId()));
+        }
+    }
+
+    @Override
+    public int[] updateCustomers(List<Customer> customers) {
+        int[] result = new int[customers.size()];
+        for (int i = 0; i < customers.size(); i++) {
+            result[i] = update(customers.get(i));
+        }
+        return result;
     }
 
     @Override
     public Optional<Customer> selectUserByEmail(String email) {
-        return customers
-                .stream()
-                .filter(c -> c.getUsername().equals(email))
-                .findFirst();
+        AtomicReference<Customer> row = customersByEmail.get(email);
+        // the email may be claimed by an update that has not swapped the row yet
+        return Optional.ofNullable(row == null ? null : row.get())
+                .filter(customer -> customer.getEmail().equals(email))
+                .map(Customer::copyOf);
     }
 
     @Override
     public void updateCustomerProfileImageId(String profileImageId, Integer customerId) {
-        // TODO: implement this 😅
+        AtomicReference<Customer> row = row(customerId);
+        if (row == null) {
+            return;
+        }
+        // same as the sql daos, a new profile image does not bump the version
+        row.getAndUpdate(current -> {
+            if (current == null) {
+                return null;
+            }
+            Customer next = Customer.copyOf(current);
+            next.setProfileImageId(profileImageId);
+            return next;
+        });
+    }
+
+    private Customer current(int id) {
+        AtomicReference<Customer> row = row(id);
+        return row == null ? null : row.get();
+    }
+
+    // optimistic, only falls back to the read lock when an insert or delete got in between
+    private AtomicReference<Customer> row(int id) {
+        long stamp = structure.tryOptimisticRead();
+        AtomicReference<Customer> row = customersById.get(id);
+        if (!structure.validate(stamp)) {
+            stamp = structure.readLock();
+            try {
+                row = customersById.get(id);
+            } finally {
+                structure.unlockRead(stamp);
+            }
+        }
+        return row;
+    }
+
+    private List<Customer> snapshot() {
+        List<AtomicReference<Customer>> rows;
+        long stamp = structure.readLock();
+        try {
+            rows = new ArrayList<>(customersById.size());
+            customersById.forEachValue(rows::add);
+        } finally {
+            structure.unlockRead(stamp);
+        }
+        List<Customer> customers = new ArrayList<>(rows.size());
+        for (AtomicReference<Customer> row : rows) {
+            Customer customer = row.get();
+            if (customer != null) {
+                customers.add(customer);
+            }
+        }
+        return customers;
+    }
+
+    // null fields are left unchanged and a stale version updates nothing, same as the sql daos
+    private int update(Customer update) {
+        String email = update.getEmail();
+        while (true) {
+            AtomicReference<Customer> row = row(update.getId());
+            Customer current = row == null ? null : row.get();
+            if (current == null
+                    || (update.getVersion() != null && !update.getVersion().equals(current.getVersion()))) {
+                return 0;
+            }
+
+            boolean emailChanged = email != null && !email.equals(current.getEmail());
+            boolean emailClaimed = false;
+            if (emailChanged) {
+                AtomicReference<Customer> owner = customersByEmail.putIfAbsent(email, row);
+                if (owner != null && owner != row) {
+                    throw new DuplicateKeyException("customer email [%s] already exists".formatted(email));
+                }
+                emailClaimed = owner == null;
+            }
+
+            Customer next = Customer.copyOf(current);
+            if (update.getName() != null) {
+                next.setName(update.getName());
+            }
+            if (update.getAge() != null) {
+                next.setAge(update.getAge());
+            }
+            if (email != null) {
+                next.setEmail(email);
+            }
+            next.setVersion(current.getVersion() + 1);
+
+            if (row.compareAndSet(current, next)) {
+                if (emailChanged) {
+                    customersByEmail.remove(current.getEmail(), row);
+                }
+                if (update.getVersion() != null) {
+                    update.setVersion(next.getVersion());
+                }
+                return 1;
+            }
+            // lost the race, give back the email we claimed and try again on the new row
+            if (emailClaimed) {
+                customersByEmail.remove(email, row);
+            }
+        }
     }
 }
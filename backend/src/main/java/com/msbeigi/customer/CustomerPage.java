@@ -0,0 +1,8 @@
+package com.msbeigi.customer;
+
+import java.util.List;
+
+public record CustomerPage(
+        List<CustomerDTO> customers,
+        String nextCursor) {
+}
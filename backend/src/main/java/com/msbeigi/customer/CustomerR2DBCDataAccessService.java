@@ -0,0 +1,97 @@
+package com.msbeigi.customer;
+
+import io.r2dbc.spi.Readable;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@Repository("r2dbc")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class CustomerR2DBCDataAccessService implements ReactiveCustomerDao {
+
+    private final DatabaseClient databaseClient;
+
+    public CustomerR2DBCDataAccessService(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    @Override
+    public Flux<Customer> selectAllCustomers() {
+        var sql = """
+                select id, name, email, password, age, gender, profile_image_id, version
+                from customer
+                limit 1000
+                """;
+        return databaseClient.sql(sql)
+                .map(CustomerR2DBCDataAccessService::mapRow)
+                .all();
+    }
+
+    @Override
+    public Flux<Customer> selectCustomersAfterId(Integer id, int limit) {
+        var sql = """
+                select id, name, email, password, age, gender, profile_image_id, version
+                from customer
+                where id > :id
+                order by id
+                limit :limit
+                """;
+        return databaseClient.sql(sql)
+                .bind("id", id)
+                .bind("limit", limit)
+                .map(CustomerR2DBCDataAccessService::mapRow)
+                .all();
+    }
+
+    @Override
+    public Flux<Customer> streamAllCustomers(int fetchSize) {
+        var sql = """
+                select id, name, email, password, age, gender, profile_image_id, version
+                from customer
+                order by id
+                """;
+        // rows are pulled from the portal fetchSize at a time as the subscriber requests them
+        return databaseClient.sql(sql)
+                .filter(statement -> statement.fetchSize(fetchSize))
+                .map(CustomerR2DBCDataAccessService::mapRow)
+                .all();
+    }
+
+    @Override
+    public Mono<Customer> selectCustomerById(Integer id) {
+        var sql = """
+                select id, name, email, password, age, gender, profile_image_id, version from customer where id = :id
+                """;
+        return databaseClient.sql(sql)
+                .bind("id", id)
+                .map(CustomerR2DBCDataAccessService::mapRow)
+                .one();
+    }
+
+    @Override
+    public Mono<Customer> selectUserByEmail(String email) {
+        var sql = """
+                select id, name, email, password, age, gender, profile_image_id, version from customer where email = :email
+                """;
+        return databaseClient.sql(sql)
+                .bind("email", email)
+                .map(CustomerR2DBCDataAccessService::mapRow)
+                .one();
+    }
+
+    static Customer mapRow(Readable row) {
+        Customer customer = new Customer(
+                row.get("id", Integer.class),
+                row.get("name", String.class),
+                row.get("email", String.class),
+                row.get("age", Integer.class),
+                Gender.valueOf(row.get("gender", String.class)),
+                row.get("password", String.class),
+                row.get("profile_image_id", String.class)
+        );
+        customer.setVersion(row.get("version", Integer.class));
+        return customer;
+    }
+}
@@ -1,15 +1,27 @@
 package com.msbeigi.customer;
 
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
 
 public interface CustomerRepository extends JpaRepository<Customer, Integer> {
     boolean existsCustomerByEmail(String email);
     boolean existsCustomerById(Integer customerId);
     Optional<Customer> findCustomerByEmail(String email);
+    List<Customer> findByIdGreaterThanOrderByIdAsc(Integer id, Pageable pageable);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query("select c.email from Customer c")
+    Stream<String> streamAllEmails();
 
     @Modifying(clearAutomatically = true)
     @Query(
@@ -0,0 +1,48 @@
+package com.msbeigi.customer;
+
+import com.msbeigi.exception.ApiError;
+import com.msbeigi.exception.RequestValidationException;
+import com.msbeigi.exception.ResourceNotFoundException;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+
+import static org.springframework.web.reactive.function.server.RequestPredicates.queryParam;
+import static org.springframework.web.reactive.function.server.RouterFunctions.route;
+
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class CustomerRouter {
+
+    @Bean
+    public RouterFunction<ServerResponse> customerRoutes(CustomerHandler customerHandler) {
+        return route()
+                .GET("/api/v2/customers", queryParam("limit", limit -> true), customerHandler::getCustomerPage)
+                .GET("/api/v2/customers", customerHandler::getCustomers)
+                .GET("/api/v2/customers/stream", customerHandler::streamCustomers)
+                .GET("/api/v2/customers/{id}", customerHandler::getCustomerById)
+                .GET("/api/v2/customers/{id}/profile-image", customerHandler::getCustomerProfileImage)
+                .onError(ResourceNotFoundException.class,
+                        (e, request) -> error(request, e, HttpStatus.NOT_FOUND))
+                .onError(RequestValidationException.class,
+                        (e, request) -> error(request, e, HttpStatus.BAD_REQUEST))
+                .build();
+    }
+
+    private static Mono<ServerResponse> error(ServerRequest request, Throwable e, HttpStatus status) {
+        ApiError apiError = new ApiError(
+                request.path(),
+                e.getMessage(),
+                status.value(),
+                LocalDateTime.now()
+        );
+        return ServerResponse.status(status).bodyValue(apiError);
+    }
+}
@@ -11,7 +11,7 @@ public class CustomerRowMapper implements RowMapper<Customer> {
 
     @Override
     public Customer mapRow(ResultSet rs, int rowNum) throws SQLException {
-        return new Customer(
+        Customer customer = new Customer(
                 rs.getInt("id"),
                 rs.getString("name"),
                 rs.getString("email"),
@@ -20,5 +20,7 @@ public class CustomerRowMapper implements RowMapper<Customer> {
                 rs.getString("password"),
                 rs.getString("profile_image_id")
         );
+        customer.setVersion(rs.getInt("version"));
+        return customer;
     }
 }
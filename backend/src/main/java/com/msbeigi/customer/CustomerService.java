@@ -3,37 +3,77 @@ package com.msbeigi.customer;
 import com.msbeigi.exception.DuplicateResourceException;
 import com.msbeigi.exception.RequestValidationException;
 import com.msbeigi.exception.ResourceNotFoundException;
+import com.msbeigi.jwt.ActiveUserCache;
+import com.msbeigi.s3.AsyncS3Service;
 import com.msbeigi.s3.S3Buckets;
-import com.msbeigi.s3.S3Service;
+import com.msbeigi.s3.S3ObjectCache;
+import com.msbeigi.s3.S3ObjectContent;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpRange;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
 import java.util.List;
-import java.util.UUID;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Service
 public class CustomerService {
 
+    static final int MAX_PAGE_SIZE = 1000;
+    static final int EXPORT_FETCH_SIZE = 500;
+
     private final CustomerDao customerDao;
     private final CustomerDTOMapper customerDTOMapper;
     private final PasswordEncoder passwordEncoder;
-    private final S3Service s3Service;
+    private final AsyncS3Service s3Service;
+    private final S3ObjectCache s3ObjectCache;
     private final S3Buckets buckets;
+    private final EmailBloomFilter emailBloomFilter;
+    private final ProfileImageVariantService profileImageVariantService;
+    private final ProfileImageReferenceService profileImageReferenceService;
+    private final ActiveUserCache activeUserCache;
+    private final Executor applicationTaskExecutor;
 
-    public CustomerService(@Qualifier("jdbc") CustomerDao customerDao,
+    public CustomerService(@Qualifier("cached") CustomerDao customerDao,
                            CustomerDTOMapper customerDTOMapper,
                            PasswordEncoder passwordEncoder,
-                           S3Service s3Service, S3Buckets buckets) {
+                           AsyncS3Service s3Service, S3ObjectCache s3ObjectCache,
+                           S3Buckets buckets,
+                           EmailBloomFilter emailBloomFilter,
+                           ProfileImageVariantService profileImageVariantService,
+                           ProfileImageReferenceService profileImageReferenceService,
+                           ActiveUserCache activeUserCache,
+                           @Qualifier(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME)
+                           Executor applicationTaskExecutor) {
         this.customerDao = customerDao;
         this.customerDTOMapper = customerDTOMapper;
         this.passwordEncoder = passwordEncoder;
         this.s3Service = s3Service;
+        this.s3ObjectCache = s3ObjectCache;
         this.buckets = buckets;
+        this.emailBloomFilter = emailBloomFilter;
+        this.profileImageVariantService = profileImageVariantService;
+        this.profileImageReferenceService = profileImageReferenceService;
+        this.activeUserCache = activeUserCache;
+        this.applicationTaskExecutor = applicationTaskExecutor;
     }
 
     public List<CustomerDTO> getAllCustomers() {
@@ -43,6 +83,36 @@ public class CustomerService {
                 .collect(Collectors.toList());
     }
 
+    public void exportAllCustomers(Consumer<CustomerDTO> consumer) {
+        customerDao.streamAllCustomers(
+                EXPORT_FETCH_SIZE,
+                customer -> consumer.accept(customerDTOMapper.apply(customer))
+        );
+    }
+
+    public CustomerPage getCustomerPage(String after, int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new RequestValidationException(
+                    "limit must be between 1 and %s".formatted(MAX_PAGE_SIZE));
+        }
+        Integer afterId = CustomerCursor.decode(after);
+
+        // fetch one extra row to find out whether there is a next page
+        List<Customer> customers = customerDao.selectCustomersAfterId(afterId, limit + 1);
+        String nextCursor = null;
+        if (customers.size() > limit) {
+            customers = customers.subList(0, limit);
+            nextCursor = CustomerCursor.encode(customers.get(limit - 1).getId());
+        }
+
+        return new CustomerPage(
+                customers.stream()
+                        .map(customerDTOMapper)
+                        .collect(Collectors.toList()),
+                nextCursor
+        );
+    }
+
     public CustomerDTO getCustomerById(Integer id) {
         return customerDao.selectCustomerById(id)
                 .map(customerDTOMapper)
@@ -51,8 +121,8 @@ public class CustomerService {
     }
 
     public void addCustomer(CustomerRegistrationRequest customerRegistrationRequest) {
-        // check if email exist
-        if (customerDao.existCustomerWithEmail(customerRegistrationRequest.email())) {
+        // check if email exist, only possible hits of the bloom filter reach the database
+        if (isEmailTaken(customerRegistrationRequest.email())) {
             throw new DuplicateResourceException(
                     "email already taken"
             );
@@ -64,12 +134,30 @@ public class CustomerService {
                 customerRegistrationRequest.age(),
                 customerRegistrationRequest.gender());
 
-        customerDao.insertCustomer(customer);
+        try {
+            customerDao.insertCustomer(customer);
+        } catch (DuplicateKeyException e) {
+            // the unique constraint still guards emails this node's filter has not seen yet
+            throw new DuplicateResourceException(
+                    "email already taken"
+            );
+        }
+        emailBloomFilter.put(customer.getEmail());
+        // a token of an earlier, deleted customer with this email may have cached it as inactive
+        activeUserCache.invalidate(customer.getEmail());
+    }
+
+    private boolean isEmailTaken(String email) {
+        return emailBloomFilter.mightContain(email) && customerDao.existCustomerWithEmail(email);
     }
 
     public void deleteCustomerById(Integer id) {
-        checkIfCustomerExistsOrThrow(id);
-        customerDao.deleteCustomerById(id);
+        Customer customer = customerDao.selectCustomerById(id)
+                .orElseThrow(() ->
+                        new ResourceNotFoundException("customer with id [%s] not found.".formatted(id)));
+        profileImageReferenceService.deleteCustomer(id);
+        // tokens of a deleted user stop working now instead of after the user-check ttl
+        activeUserCache.invalidate(customer.getEmail());
     }
 
     private void checkIfCustomerExistsOrThrow(Integer id) {
@@ -79,28 +167,36 @@ public class CustomerService {
     }
 
     public void updateCustomerById(Integer id, CustomerUpdateRequest customerUpdateRequest) {
+        if (customerUpdateRequest.version() != null) {
+            updateCustomerAtVersion(id, customerUpdateRequest);
+            return;
+        }
 
         Customer customer = customerDao.selectCustomerById(id)
                 .orElseThrow(() ->
                         new ResourceNotFoundException("Customer with id [%s] not found!".formatted(id)));
 
+        // only the columns that differ go into the statement, the version read with the row guards them
+        Customer update = new Customer();
+        update.setId(id);
+        update.setVersion(customer.getVersion());
         boolean status = false;
 
         if (customerUpdateRequest.name() != null && !customerUpdateRequest.name().equals(customer.getName())) {
-            customer.setName(customerUpdateRequest.name());
+            update.setName(customerUpdateRequest.name());
             status = true;
         }
 
         if (customerUpdateRequest.age() != null && !customerUpdateRequest.age().equals(customer.getAge())) {
-            customer.setAge(customerUpdateRequest.age());
+            update.setAge(customerUpdateRequest.age());
             status = true;
         }
 
         if (customerUpdateRequest.email() != null && !customerUpdateRequest.email().equals(customer.getEmail())) {
-            if (customerDao.existCustomerWithEmail(customerUpdateRequest.email())) {
+            if (isEmailTaken(customerUpdateRequest.email())) {
                 throw new DuplicateResourceException("email already was taken.");
             }
-            customer.setEmail(customerUpdateRequest.email());
+            update.setEmail(customerUpdateRequest.email());
             status = true;
         }
 
@@ -108,26 +204,118 @@ public class CustomerService {
             throw new RequestValidationException("no data changes found!");
         }
 
-        customerDao.updateCustomer(customer);
+        try {
+            customerDao.updateCustomer(update);
+        } catch (DuplicateKeyException e) {
+            throw new DuplicateResourceException("email already was taken.");
+        }
+        if (update.getEmail() != null) {
+            emailBloomFilter.put(update.getEmail());
+            invalidateActiveUsers(customer.getEmail(), update.getEmail());
+        }
     }
 
+    // the caller already holds the row, the version check replaces the read before the write
+    private void updateCustomerAtVersion(Integer id, CustomerUpdateRequest customerUpdateRequest) {
+        if (customerUpdateRequest.name() == null
+                && customerUpdateRequest.age() == null
+                && customerUpdateRequest.email() == null) {
+            throw new RequestValidationException("no data changes found!");
+        }
+
+        Customer update = new Customer();
+        update.setId(id);
+        update.setName(customerUpdateRequest.name());
+        update.setAge(customerUpdateRequest.age());
+        update.setEmail(customerUpdateRequest.email());
+        update.setVersion(customerUpdateRequest.version());
+        // only an email change needs the previous value, its tokens are revoked below
+        String previousEmail = update.getEmail() == null ? null : customerDao.selectCustomerById(id)
+                .map(Customer::getEmail)
+                .orElse(null);
+
+        try {
+            customerDao.updateCustomer(update);
+        } catch (DuplicateKeyException e) {
+            // the unique constraint decides, the customer's own email never conflicts with itself
+            throw new DuplicateResourceException("email already was taken.");
+        } catch (OptimisticLockingFailureException e) {
+            checkIfCustomerExistsOrThrow(id);
+            throw e;
+        }
+        if (update.getEmail() != null) {
+            emailBloomFilter.put(update.getEmail());
+            invalidateActiveUsers(previousEmail, update.getEmail());
+        }
+    }
 
-    public void uploadCustomerProfileImage(Integer customerId, MultipartFile file) {
+    // the subject of existing tokens is the email, both old and new answers may be cached
+    private void invalidateActiveUsers(String previousEmail, String email) {
+        if (previousEmail != null && !previousEmail.equals(email)) {
+            activeUserCache.invalidate(previousEmail);
+            activeUserCache.invalidate(email);
+        }
+    }
+
+
+    public CompletableFuture<Void> uploadCustomerProfileImage(Integer customerId, MultipartFile file) {
         checkIfCustomerExistsOrThrow(customerId);
-        String profileImageId = UUID.randomUUID().toString();
+        // the multipart file is cleaned up with the request, the upload outlives it in its own temp file
+        Path upload;
         try {
-            s3Service.putObject(
-                    buckets.getCustomer(),
-                    "profile-images/%s/%s".formatted(customerId, profileImageId),
-                    file.getBytes()
-            );
+            upload = Files.createTempFile("profile-image-", null);
+        } catch (IOException e) {
+            throw new RuntimeException("failed to upload profile image", e);
+        }
+        String profileImageId;
+        try {
+            // hashed on the way to disk, the digest is the id and decides whether s3 needs the bytes at all
+            profileImageId = copyAndHash(file, upload);
         } catch (IOException e) {
+            deleteQuietly(upload);
             throw new RuntimeException("failed to upload profile image", e);
         }
-        customerDao.updateCustomerProfileImageId(profileImageId, customerId);
+
+        if (profileImageReferenceService.assignIfStored(customerId, profileImageId)) {
+            deleteQuietly(upload);
+            // the variants were rendered with the first upload
+            return CompletableFuture.completedFuture(null);
+        }
+        return s3Service.putObject(
+                        buckets.getCustomer(),
+                        ProfileImageVariantService.originalKey(customerId, profileImageId),
+                        upload
+                )
+                .whenComplete((result, e) -> deleteQuietly(upload))
+                // the s3 future completes on the sdk's response threads, keep blocking jdbc off them
+                .thenRunAsync(() -> {
+                    profileImageReferenceService.assignAfterStore(customerId, profileImageId);
+                    profileImageVariantService.generateVariants(customerId, profileImageId);
+                }, applicationTaskExecutor);
+    }
+
+    private static String copyAndHash(MultipartFile file, Path target) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        try (InputStream content = new DigestInputStream(file.getInputStream(), digest)) {
+            Files.copy(content, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException ignored) {
+            // left for the os to clean up with the rest of the temp directory
+        }
     }
 
-    public byte[] getCustomerProfileImage(Integer customerId) {
+    public String getCustomerProfileImageId(Integer customerId) {
         var customer = customerDao.selectCustomerById(customerId)
                 .map(customerDTOMapper)
                 .orElseThrow(() -> new ResourceNotFoundException(
@@ -139,9 +327,47 @@ public class CustomerService {
                     "customer with id [%s] profile image not found!".formatted(customerId));
         }
 
-        return s3Service.getObject(
+        return customer.profileImageId();
+    }
+
+    public ProfileImage getCustomerProfileImage(Integer customerId) {
+        return getCustomerProfileImage(customerId, getCustomerProfileImageId(customerId));
+    }
+
+    public ProfileImage getCustomerProfileImage(Integer customerId, String profileImageId) {
+        return getCustomerProfileImage(customerId, profileImageId, null);
+    }
+
+    public ProfileImage getCustomerProfileImage(Integer customerId, String profileImageId, Integer size) {
+        return getCustomerProfileImage(customerId, profileImageId, size, null);
+    }
+
+    public ProfileImage getCustomerProfileImage(Integer customerId, String profileImageId, Integer size,
+                                                HttpRange range) {
+        if (size != null) {
+            Optional<S3ObjectContent> variant =
+                    profileImageVariantService.getVariant(customerId, profileImageId, size, range);
+            if (variant.isPresent()) {
+                return toProfileImage(variant.get(), size);
+            }
+        }
+        // without a variant the original still renders. the range was asked of the variant,
+        // so a fallback sends the whole original rather than a slice of different bytes
+        S3ObjectContent original = s3ObjectCache.getObject(
                 buckets.getCustomer(),
-                "profile-images/%s/%s".formatted(customerId, customer.profileImageId())
+                ProfileImageVariantService.originalKey(customerId, profileImageId),
+                size == null ? range : null
+        );
+        return toProfileImage(original, null);
+    }
+
+    private static ProfileImage toProfileImage(S3ObjectContent object, Integer size) {
+        return new ProfileImage(
+                object.content(),
+                object.contentLength(),
+                object.lastModified(),
+                size,
+                object.contentRange()
         );
     }
 }
@@ -1,4 +1,4 @@
 package com.msbeigi.customer;
 
-public record CustomerUpdateRequest(String name, String email, Integer age) {
+public record CustomerUpdateRequest(String name, String email, Integer age, Integer version) {
 }
@@ -0,0 +1,78 @@
+package com.msbeigi.customer;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+@Component
+public class EmailBloomFilter {
+
+    private static final int LOAD_FETCH_SIZE = 1000;
+
+    private final CustomerDao customerDao;
+    private final AtomicLongArray bits;
+    private final long numberOfBits;
+    private final int numberOfHashes;
+    private volatile boolean loaded;
+
+    public EmailBloomFilter(@Qualifier("jdbc") CustomerDao customerDao,
+                            @Value("${customer.email-filter.expected-insertions}") long expectedInsertions,
+                            @Value("${customer.email-filter.false-positive-probability}") double falsePositiveProbability) {
+        this.customerDao = customerDao;
+        long optimalBits = (long) Math.ceil(
+                -expectedInsertions * Math.log(falsePositiveProbability) / (Math.log(2) * Math.log(2)));
+        this.bits = new AtomicLongArray(Math.toIntExact((optimalBits + 63) / 64));
+        this.numberOfBits = bits.length() * 64L;
+        this.numberOfHashes = Math.max(1, (int) Math.round((double) numberOfBits / expectedInsertions * Math.log(2)));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        customerDao.streamAllEmails(LOAD_FETCH_SIZE, this::put);
+        loaded = true;
+    }
+
+    // until the existing emails are loaded every email might be taken
+    public boolean mightContain(String email) {
+        if (!loaded) {
+            return true;
+        }
+        long hash1 = hash(email, 31);
+        long hash2 = hash(email, 0x9E3779B97F4A7C15L);
+        for (int i = 0; i < numberOfHashes; i++) {
+            long bit = Math.floorMod(hash1 + i * hash2, numberOfBits);
+            if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public void put(String email) {
+        long hash1 = hash(email, 31);
+        long hash2 = hash(email, 0x9E3779B97F4A7C15L);
+        for (int i = 0; i < numberOfHashes; i++) {
+            long bit = Math.floorMod(hash1 + i * hash2, numberOfBits);
+            long mask = 1L << bit;
+            bits.getAndAccumulate((int) (bit >>> 6), mask, (current, m) -> current | m);
+        }
+    }
+
+    private static long hash(String value, long multiplier) {
+        long hash = 0;
+        for (int i = 0; i < value.length(); i++) {
+            hash = hash * multiplier + value.charAt(i);
+        }
+        // murmur3 finalizer, spreads the polynomial hash over all 64 bits
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
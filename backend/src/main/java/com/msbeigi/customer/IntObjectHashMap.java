@@ -0,0 +1,159 @@
+package com.msbeigi.customer;
+
+import java.util.function.Consumer;
+
+// open addressing over parallel int/Object arrays, so ids are never boxed and there is no node per entry.
+// not thread-safe: writers need external locking. get never throws or spins while a writer is active,
+// so it can run under an optimistic read as long as the result is validated afterwards.
+final class IntObjectHashMap<V> {
+
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final float LOAD_FACTOR = 0.7f;
+
+    // keys and values are swapped together on resize, a reader always sees a matching pair of arrays
+    private record Table(int[] keys, Object[] values) {
+    }
+
+    private volatile Table table;
+    private int size;
+    private int threshold;
+
+    IntObjectHashMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    IntObjectHashMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(DEFAULT_CAPACITY, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        allocate(capacity);
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean containsKey(int key) {
+        return get(key) != null;
+    }
+
+    @SuppressWarnings("unchecked")
+    V get(int key) {
+        Table t = table;
+        int[] keys = t.keys();
+        Object[] values = t.values();
+        int mask = keys.length - 1;
+        int i = index(key, mask);
+        // bounded, a concurrent writer can't make a lookup run forever
+        for (int probes = 0; probes <= mask; probes++) {
+            Object value = values[i];
+            if (value == null) {
+                return null;
+            }
+            if (keys[i] == key) {
+                return (V) value;
+            }
+            i = (i + 1) & mask;
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    V put(int key, V value) {
+        if (value == null) {
+            throw new IllegalArgumentException("null values are not supported");
+        }
+        int[] keys = table.keys();
+        Object[] values = table.values();
+        int mask = keys.length - 1;
+        int i = index(key, mask);
+        while (values[i] != null) {
+            if (keys[i] == key) {
+                Object previous = values[i];
+                values[i] = value;
+                return (V) previous;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = value;
+        if (++size > threshold) {
+            resize();
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    V remove(int key) {
+        int[] keys = table.keys();
+        Object[] values = table.values();
+        int mask = keys.length - 1;
+        int i = index(key, mask);
+        while (values[i] != null) {
+            if (keys[i] == key) {
+                Object previous = values[i];
+                shiftBack(keys, values, mask, i);
+                size--;
+                return (V) previous;
+            }
+            i = (i + 1) & mask;
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    void forEachValue(Consumer<? super V> consumer) {
+        for (Object value : table.values()) {
+            if (value != null) {
+                consumer.accept((V) value);
+            }
+        }
+    }
+
+    // no tombstones: entries after the removed slot move back if their probe chain crossed it
+    private static void shiftBack(int[] keys, Object[] values, int mask, int free) {
+        int i = (free + 1) & mask;
+        while (values[i] != null) {
+            int home = index(keys[i], mask);
+            boolean reachable = free <= i ? free < home && home <= i : free < home || home <= i;
+            if (!reachable) {
+                keys[free] = keys[i];
+                values[free] = values[i];
+                free = i;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[free] = 0;
+        values[free] = null;
+    }
+
+    private void resize() {
+        Table old = table;
+        int[] oldKeys = old.keys();
+        Object[] oldValues = old.values();
+        int[] keys = new int[oldKeys.length << 1];
+        Object[] values = new Object[oldValues.length << 1];
+        int mask = keys.length - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldValues[j] != null) {
+                int i = index(oldKeys[j], mask);
+                while (values[i] != null) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = oldKeys[j];
+                values[i] = oldValues[j];
+            }
+        }
+        table = new Table(keys, values);
+        threshold = (int) (keys.length * LOAD_FACTOR);
+    }
+
+    private void allocate(int capacity) {
+        table = new Table(new int[capacity], new Object[capacity]);
+        threshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    // ids are mostly sequential, spread them so neighbours don't form one long probe chain
+    private static int index(int key, int mask) {
+        int h = key * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+}
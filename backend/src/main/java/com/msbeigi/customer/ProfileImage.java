@@ -0,0 +1,18 @@
+package com.msbeigi.customer;
+
+import com.msbeigi.s3.ContentRange;
+
+import java.io.InputStream;
+import java.time.Instant;
+
+public record ProfileImage(
+        InputStream content,
+        Long contentLength,
+        Instant lastModified,
+        Integer size,
+        ContentRange contentRange) {
+
+    public ProfileImage(InputStream content, Long contentLength, Instant lastModified, Integer size) {
+        this(content, contentLength, lastModified, size, null);
+    }
+}
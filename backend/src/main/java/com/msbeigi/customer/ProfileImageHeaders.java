@@ -0,0 +1,50 @@
+package com.msbeigi.customer;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// shared by the servlet controller and the reactive handler so both stacks revalidate the same way
+final class ProfileImageHeaders {
+
+    private ProfileImageHeaders() {
+    }
+
+    static String eTag(String profileImageId, Integer size) {
+        return size == null
+                ? "\"%s\"".formatted(profileImageId)
+                : "\"%s-%s\"".formatted(profileImageId, size);
+    }
+
+    static CacheControl cacheControl(boolean immutable) {
+        return immutable
+                ? CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable()
+                : CacheControl.noCache();
+    }
+
+    static boolean matchesETag(List<String> ifNoneMatch, String eTag) {
+        return ifNoneMatch.stream()
+                .map(tag -> tag.startsWith("W/") ? tag.substring(2) : tag)
+                .anyMatch(tag -> tag.equals(eTag) || tag.equals("*"));
+    }
+
+    // a single range of the current representation, or null to send the whole image. If-Range
+    // compares strongly, so a date or any other etag means the client's partial copy is stale
+    static HttpRange range(HttpHeaders requestHeaders, String eTag) {
+        String ifRange = requestHeaders.getFirst(HttpHeaders.IF_RANGE);
+        if (ifRange != null && !ifRange.equals(eTag)) {
+            return null;
+        }
+        List<HttpRange> ranges;
+        try {
+            ranges = requestHeaders.getRange();
+        } catch (IllegalArgumentException e) {
+            // an invalid Range is ignored, not rejected
+            return null;
+        }
+        return ranges.size() == 1 ? ranges.get(0) : null;
+    }
+}
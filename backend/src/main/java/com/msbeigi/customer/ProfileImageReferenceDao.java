@@ -0,0 +1,88 @@
+package com.msbeigi.customer;
+
+import com.msbeigi.exception.ResourceNotFoundException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+// counts the customers pointing at each content addressed profile image
+@Repository
+public class ProfileImageReferenceDao {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ProfileImageReferenceDao(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // locks the customer row until the transaction ends, so its image can not change underneath the counts
+    public Optional<String> lockCustomerProfileImageId(Integer customerId) {
+        var sql = """
+                SELECT profile_image_id FROM customer WHERE id = ? FOR UPDATE
+                """;
+        List<String> profileImageIds = jdbcTemplate.queryForList(sql, String.class, customerId);
+        if (profileImageIds.isEmpty()) {
+            throw new ResourceNotFoundException("customer with id [%s] not found.".formatted(customerId));
+        }
+        return Optional.ofNullable(profileImageIds.get(0));
+    }
+
+    // false when the image is not stored yet and has to be uploaded first
+    public boolean addReferenceIfStored(String digest) {
+        var sql = """
+                UPDATE profile_image SET reference_count = reference_count + 1, released_at = NULL WHERE digest = ?
+                """;
+        return jdbcTemplate.update(sql, digest) == 1;
+    }
+
+    public void addReferenceAfterStore(String digest) {
+        // two first uploads of the same image may race, both store the same bytes and both count
+        var sql = """
+                INSERT INTO profile_image(digest, reference_count) VALUES (?, 1)
+                ON CONFLICT (digest) DO UPDATE SET reference_count = profile_image.reference_count + 1, released_at = NULL
+                """;
+        jdbcTemplate.update(sql, digest);
+    }
+
+    public void removeReference(String digest) {
+        // the row and object stay at zero until the sweeper's grace period is over,
+        // a later upload of the same image still skips the put
+        var sql = """
+                UPDATE profile_image SET reference_count = reference_count - 1,
+                released_at = CASE WHEN reference_count = 1 THEN now() ELSE released_at END
+                WHERE digest = ? AND reference_count > 0
+                """;
+        jdbcTemplate.update(sql, digest);
+    }
+
+    public List<String> selectReleasedBefore(Instant releasedBefore, int limit) {
+        var sql = """
+                SELECT digest FROM profile_image
+                WHERE reference_count = 0 AND released_at < ?
+                ORDER BY released_at
+                LIMIT ?
+                """;
+        return jdbcTemplate.queryForList(sql, String.class, Timestamp.from(releasedBefore), limit);
+    }
+
+    // locks the row until the transaction ends and re-checks it, an upload may have taken the image again
+    public boolean lockReleasedBefore(String digest, Instant releasedBefore) {
+        var sql = """
+                SELECT digest FROM profile_image
+                WHERE digest = ? AND reference_count = 0 AND released_at < ?
+                FOR UPDATE
+                """;
+        return !jdbcTemplate.queryForList(sql, String.class, digest, Timestamp.from(releasedBefore)).isEmpty();
+    }
+
+    public void deleteImage(String digest) {
+        var sql = """
+                DELETE FROM profile_image WHERE digest = ?
+                """;
+        jdbcTemplate.update(sql, digest);
+    }
+}
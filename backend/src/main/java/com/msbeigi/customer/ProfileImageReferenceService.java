@@ -0,0 +1,69 @@
+package com.msbeigi.customer;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
+
+import java.util.Optional;
+import java.util.stream.Stream;
+
+// keeps customer.profile_image_id and profile_image.reference_count in step. every change locks the
+// customer row first, so concurrent uploads and a delete of the same customer are applied one at a time
+@Service
+public class ProfileImageReferenceService {
+
+    private final CustomerDao customerDao;
+    private final ProfileImageReferenceDao profileImageReferenceDao;
+
+    public ProfileImageReferenceService(@Qualifier("cached") CustomerDao customerDao,
+                                        ProfileImageReferenceDao profileImageReferenceDao) {
+        this.customerDao = customerDao;
+        this.profileImageReferenceDao = profileImageReferenceDao;
+    }
+
+    // false, and nothing changed, when the image is not stored yet and has to be uploaded first
+    @Transactional
+    public boolean assignIfStored(Integer customerId, String digest) {
+        return assign(customerId, digest, false);
+    }
+
+    @Transactional
+    public void assignAfterStore(Integer customerId, String digest) {
+        assign(customerId, digest, true);
+    }
+
+    @Transactional
+    public void deleteCustomer(Integer customerId) {
+        Optional<String> previous = counted(profileImageReferenceDao.lockCustomerProfileImageId(customerId));
+        customerDao.deleteCustomerById(customerId);
+        previous.ifPresent(profileImageReferenceDao::removeReference);
+    }
+
+    private boolean assign(Integer customerId, String digest, boolean stored) {
+        Optional<String> previous = counted(profileImageReferenceDao.lockCustomerProfileImageId(customerId));
+        if (previous.isPresent() && previous.get().equals(digest)) {
+            // the customer holds a reference already, so the image is stored and the count stays
+            return true;
+        }
+
+        // count rows are taken in digest order, so two customers swapping images can not deadlock
+        for (String counted : Stream.concat(Stream.of(digest), previous.stream()).sorted().toList()) {
+            if (!counted.equals(digest)) {
+                profileImageReferenceDao.removeReference(counted);
+            } else if (stored) {
+                profileImageReferenceDao.addReferenceAfterStore(digest);
+            } else if (!profileImageReferenceDao.addReferenceIfStored(digest)) {
+                TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+                return false;
+            }
+        }
+        customerDao.updateCustomerProfileImageId(digest, customerId);
+        return true;
+    }
+
+    // uuid ids predate reference counting
+    private static Optional<String> counted(Optional<String> profileImageId) {
+        return profileImageId.filter(ProfileImageVariantService::isDigest);
+    }
+}
@@ -0,0 +1,13 @@
+package com.msbeigi.customer;
+
+import reactor.core.publisher.Flux;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+
+public record ProfileImageStream(
+        Flux<ByteBuffer> content,
+        Long contentLength,
+        Instant lastModified,
+        Integer size) {
+}
@@ -0,0 +1,115 @@
+package com.msbeigi.customer;
+
+import com.msbeigi.s3.S3Buckets;
+import com.msbeigi.s3.S3Service;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// deletes content addressed images, with their variants, once no customer has used them for the grace period.
+// the count is checked again under the row lock and the objects go before the row, so an upload of the same
+// image either takes a reference first or waits until the row is gone and stores the bytes again
+@Component
+public class ProfileImageSweeper implements DisposableBean {
+
+    private final ProfileImageReferenceDao profileImageReferenceDao;
+    private final S3Service s3Service;
+    private final S3Buckets buckets;
+    private final TransactionOperations transactionOperations;
+    private final Duration gracePeriod;
+    private final int batchSize;
+    private final ScheduledExecutorService executor;
+    private final Counter deleted;
+    private final Counter failed;
+
+    public ProfileImageSweeper(ProfileImageReferenceDao profileImageReferenceDao,
+                               S3Service s3Service,
+                               S3Buckets buckets,
+                               TransactionOperations transactionOperations,
+                               MeterRegistry meterRegistry,
+                               @Value("${customer.profile-image.sweeper.grace-period}") Duration gracePeriod,
+                               @Value("${customer.profile-image.sweeper.interval}") Duration interval,
+                               @Value("${customer.profile-image.sweeper.batch-size}") int batchSize) {
+        this.profileImageReferenceDao = profileImageReferenceDao;
+        this.s3Service = s3Service;
+        this.buckets = buckets;
+        this.transactionOperations = transactionOperations;
+        this.gracePeriod = gracePeriod;
+        this.batchSize = batchSize;
+        this.deleted = Counter.builder("profile-image.sweeper.deleted")
+                .register(meterRegistry);
+        this.failed = Counter.builder("profile-image.sweeper.failed")
+                .register(meterRegistry);
+        this.executor = Executors.newSingleThreadScheduledExecutor(
+                new CustomizableThreadFactory("profile-image-sweeper-"));
+        executor.scheduleWithFixedDelay(
+                this::sweepQuietly, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    // the number of images deleted
+    int sweep() {
+        Instant releasedBefore = Instant.now().minus(gracePeriod);
+        int count = 0;
+        List<String> digests;
+        do {
+            digests = profileImageReferenceDao.selectReleasedBefore(releasedBefore, batchSize);
+            int deletedInBatch = 0;
+            for (String digest : digests) {
+                try {
+                    if (Boolean.TRUE.equals(transactionOperations.execute(status -> delete(digest, releasedBefore)))) {
+                        deleted.increment();
+                        deletedInBatch++;
+                    }
+                } catch (RuntimeException e) {
+                    // the row stays, the next run tries again
+                    failed.increment();
+                }
+            }
+            count += deletedInBatch;
+            // a batch that deleted nothing would only be selected again
+            if (deletedInBatch == 0) {
+                break;
+            }
+        } while (digests.size() == batchSize);
+        return count;
+    }
+
+    private boolean delete(String digest, Instant releasedBefore) {
+        if (!profileImageReferenceDao.lockReleasedBefore(digest, releasedBefore)) {
+            return false;
+        }
+        // digest keys don't depend on the customer
+        String bucket = buckets.getCustomer();
+        for (int size : ProfileImageVariantService.SIZES) {
+            s3Service.deleteObject(bucket, ProfileImageVariantService.variantKey(null, digest, size));
+        }
+        s3Service.deleteObject(bucket, ProfileImageVariantService.originalKey(null, digest));
+        profileImageReferenceDao.deleteImage(digest);
+        return true;
+    }
+
+    private void sweepQuietly() {
+        try {
+            sweep();
+        } catch (RuntimeException e) {
+            // an exception would cancel the schedule
+            failed.increment();
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package com.msbeigi.customer;
+
+import com.msbeigi.exception.RequestValidationException;
+import com.msbeigi.s3.S3Buckets;
+import com.msbeigi.s3.S3ObjectCache;
+import com.msbeigi.s3.S3ObjectContent;
+import com.msbeigi.s3.S3Service;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpRange;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+@Service
+public class ProfileImageVariantService implements DisposableBean {
+
+    static final List<Integer> SIZES = List.of(64, 256, 1024);
+
+    private final S3Service s3Service;
+    private final S3ObjectCache s3ObjectCache;
+    private final S3Buckets buckets;
+    private final ThreadPoolExecutor executor;
+    private final ConcurrentMap<String, CompletableFuture<Boolean>> inFlight = new ConcurrentHashMap<>();
+    private final long maxPixels;
+    private final Counter rejected;
+    private final Counter failed;
+
+    public ProfileImageVariantService(S3Service s3Service,
+                                      S3ObjectCache s3ObjectCache,
+                                      S3Buckets buckets,
+                                      MeterRegistry meterRegistry,
+                                      @Value("${customer.profile-image.variants.pool-size}") int poolSize,
+                                      @Value("${customer.profile-image.variants.queue-capacity}") int queueCapacity,
+                                      @Value("${customer.profile-image.variants.max-pixels}") long maxPixels) {
+        this.s3Service = s3Service;
+        this.s3ObjectCache = s3ObjectCache;
+        this.buckets = buckets;
+        this.maxPixels = maxPixels;
+        // decoding a full size upload is cpu and memory heavy, so only a few run at once
+        this.executor = new ThreadPoolExecutor(
+                poolSize, poolSize,
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                new CustomizableThreadFactory("profile-image-variants-"),
+                new ThreadPoolExecutor.AbortPolicy()
+        );
+        this.rejected = Counter.builder("profile-image.variants.rejected")
+                .register(meterRegistry);
+        this.failed = Counter.builder("profile-image.variants.failed")
+                .register(meterRegistry);
+        Gauge.builder("profile-image.variants.queue.depth", executor, e -> e.getQueue().size())
+                .register(meterRegistry);
+    }
+
+    public CompletableFuture<Void> generateVariants(Integer customerId, String profileImageId) {
+        return CompletableFuture.allOf(SIZES.stream()
+                .map(size -> generate(customerId, profileImageId, size))
+                .toArray(CompletableFuture[]::new));
+    }
+
+    public Optional<S3ObjectContent> getVariant(Integer customerId, String profileImageId, int size) {
+        return getVariant(customerId, profileImageId, size, null);
+    }
+
+    public Optional<S3ObjectContent> getVariant(Integer customerId, String profileImageId, int size,
+                                                HttpRange range) {
+        checkSize(size);
+
+        String key = variantKey(customerId, profileImageId, size);
+        try {
+            return Optional.of(s3ObjectCache.getObject(buckets.getCustomer(), key, range));
+        } catch (NoSuchKeyException ignored) {
+            // not generated yet, create it below
+        }
+
+        // empty when the pool is saturated or the upload can not be decoded
+        if (!generate(customerId, profileImageId, size).join()) {
+            return Optional.empty();
+        }
+        return Optional.of(s3ObjectCache.getObject(buckets.getCustomer(), key, range));
+    }
+
+    static void checkSize(int size) {
+        if (!SIZES.contains(size)) {
+            throw new RequestValidationException(
+                    "profile image size [%s] is not one of %s".formatted(size, SIZES));
+        }
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdown();
+    }
+
+    CompletableFuture<Boolean> generate(Integer customerId, String profileImageId, int size) {
+        String key = variantKey(customerId, profileImageId, size);
+        CompletableFuture<Boolean> future = new CompletableFuture<>();
+        CompletableFuture<Boolean> existing = inFlight.putIfAbsent(key, future);
+        if (existing != null) {
+            return existing;
+        }
+
+        try {
+            executor.execute(() -> {
+                try {
+                    future.complete(resizeAndStore(customerId, profileImageId, size, key));
+                } catch (Throwable e) {
+                    // callers join this future, it has to finish even when decoding runs out of memory
+                    failed.increment();
+                    future.complete(false);
+                    if (e instanceof Error error) {
+                        throw error;
+                    }
+                } finally {
+                    inFlight.remove(key, future);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            inFlight.remove(key, future);
+            future.complete(false);
+        }
+        return future;
+    }
+
+    private boolean resizeAndStore(Integer customerId, String profileImageId, int size, String key) {
+        BufferedImage image;
+        try (InputStream original = s3Service.getObjectStream(
+                buckets.getCustomer(), originalKey(customerId, profileImageId))) {
+            image = decode(original);
+        } catch (IOException e) {
+            image = null;
+        }
+        if (image == null) {
+            failed.increment();
+            return false;
+        }
+        s3Service.putObject(buckets.getCustomer(), key, toJpeg(resize(image, size)));
+        return true;
+    }
+
+    // null for unreadable images and for images above maxPixels
+    private BufferedImage decode(InputStream original) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(original)) {
+            Iterator<ImageReader> readers = input == null ? null : ImageIO.getImageReaders(input);
+            if (readers == null || !readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                // the header is enough to refuse a decompression bomb before its pixels are allocated
+                if ((long) reader.getWidth(0) * reader.getHeight(0) > maxPixels) {
+                    return null;
+                }
+                return reader.read(0);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    static BufferedImage resize(BufferedImage image, int size) {
+        double scale = Math.min(1.0, (double) size / Math.max(image.getWidth(), image.getHeight()));
+        int targetWidth = Math.max(1, (int) Math.round(image.getWidth() * scale));
+        int targetHeight = Math.max(1, (int) Math.round(image.getHeight() * scale));
+
+        // halve in steps, a single bilinear pass over a large ratio drops most of the source pixels
+        BufferedImage current = image;
+        int width = image.getWidth();
+        int height = image.getHeight();
+        do {
+            width = Math.max(targetWidth, width / 2);
+            height = Math.max(targetHeight, height / 2);
+            current = draw(current, width, height);
+        } while (width != targetWidth || height != targetHeight);
+        return current;
+    }
+
+    private static BufferedImage draw(BufferedImage source, int width, int height) {
+        // jpeg has no alpha channel, flatten onto white
+        BufferedImage target = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = target.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(source, 0, 0, width, height, Color.WHITE, null);
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+
+    private static byte[] toJpeg(BufferedImage image) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            ImageIO.write(image, "jpg", out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    // ids are sha-256 digests of the upload, stored once for every customer. the uuids of older
+    // uploads keep their per customer keys
+    static String originalKey(Integer customerId, String profileImageId) {
+        return isDigest(profileImageId)
+                ? "images/sha256/%s".formatted(profileImageId)
+                : "profile-images/%s/%s".formatted(customerId, profileImageId);
+    }
+
+    static String variantKey(Integer customerId, String profileImageId, int size) {
+        return isDigest(profileImageId)
+                ? "images/sha256/%s/%s".formatted(profileImageId, size)
+                : "profile-images/%s/%s/%s".formatted(customerId, profileImageId, size);
+    }
+
+    static boolean isDigest(String profileImageId) {
+        return profileImageId.length() == 64;
+    }
+}
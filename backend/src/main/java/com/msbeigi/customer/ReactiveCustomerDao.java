@@ -0,0 +1,12 @@
+package com.msbeigi.customer;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public interface ReactiveCustomerDao {
+    Flux<Customer> selectAllCustomers();
+    Flux<Customer> selectCustomersAfterId(Integer id, int limit);
+    Flux<Customer> streamAllCustomers(int fetchSize);
+    Mono<Customer> selectCustomerById(Integer id);
+    Mono<Customer> selectUserByEmail(String email);
+}
@@ -0,0 +1,122 @@
+package com.msbeigi.customer;
+
+import com.msbeigi.exception.RequestValidationException;
+import com.msbeigi.exception.ResourceNotFoundException;
+import com.msbeigi.s3.ReactiveS3Service;
+import com.msbeigi.s3.S3Buckets;
+import com.msbeigi.s3.S3ObjectStream;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+
+import java.util.List;
+
+// the read side of CustomerService for the webflux stack, nothing in here may block an event loop thread
+@Service
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveCustomerService {
+
+    private final ReactiveCustomerDao customerDao;
+    private final CustomerDTOMapper customerDTOMapper;
+    private final ReactiveS3Service s3Service;
+    private final S3Buckets buckets;
+    private final ProfileImageVariantService profileImageVariantService;
+
+    public ReactiveCustomerService(@Qualifier("r2dbc") ReactiveCustomerDao customerDao,
+                                   CustomerDTOMapper customerDTOMapper,
+                                   ReactiveS3Service s3Service,
+                                   S3Buckets buckets,
+                                   ProfileImageVariantService profileImageVariantService) {
+        this.customerDao = customerDao;
+        this.customerDTOMapper = customerDTOMapper;
+        this.s3Service = s3Service;
+        this.buckets = buckets;
+        this.profileImageVariantService = profileImageVariantService;
+    }
+
+    public Flux<CustomerDTO> getAllCustomers() {
+        return customerDao.selectAllCustomers()
+                .map(customerDTOMapper);
+    }
+
+    public Flux<CustomerDTO> exportAllCustomers() {
+        return customerDao.streamAllCustomers(CustomerService.EXPORT_FETCH_SIZE)
+                .map(customerDTOMapper);
+    }
+
+    public Mono<CustomerPage> getCustomerPage(String after, int limit) {
+        if (limit < 1 || limit > CustomerService.MAX_PAGE_SIZE) {
+            return Mono.error(new RequestValidationException(
+                    "limit must be between 1 and %s".formatted(CustomerService.MAX_PAGE_SIZE)));
+        }
+
+        // fetch one extra row to find out whether there is a next page
+        return Mono.fromCallable(() -> CustomerCursor.decode(after))
+                .flatMap(afterId -> customerDao.selectCustomersAfterId(afterId, limit + 1).collectList())
+                .map(customers -> {
+                    String nextCursor = null;
+                    if (customers.size() > limit) {
+                        customers = customers.subList(0, limit);
+                        nextCursor = CustomerCursor.encode(customers.get(limit - 1).getId());
+                    }
+                    List<CustomerDTO> page = customers.stream()
+                            .map(customerDTOMapper)
+                            .toList();
+                    return new CustomerPage(page, nextCursor);
+                });
+    }
+
+    public Mono<CustomerDTO> getCustomerById(Integer id) {
+        return customerDao.selectCustomerById(id)
+                .map(customerDTOMapper)
+                .switchIfEmpty(Mono.error(() ->
+                        new ResourceNotFoundException("Customer with id [%s] not found!".formatted(id))));
+    }
+
+    public Mono<String> getCustomerProfileImageId(Integer customerId) {
+        return customerDao.selectCustomerById(customerId)
+                .switchIfEmpty(Mono.error(() -> new ResourceNotFoundException(
+                        "customer with id [%s] not found!".formatted(customerId)
+                )))
+                .mapNotNull(Customer::getProfileImageId)
+                .filter(StringUtils::isNotBlank)
+                .switchIfEmpty(Mono.error(() -> new ResourceNotFoundException(
+                        "customer with id [%s] profile image not found!".formatted(customerId))));
+    }
+
+    public Mono<ProfileImageStream> getCustomerProfileImage(Integer customerId, String profileImageId, Integer size) {
+        // without a variant the original still renders
+        Mono<ProfileImageStream> original = Mono.defer(() -> s3Service.getObject(
+                buckets.getCustomer(),
+                ProfileImageVariantService.originalKey(customerId, profileImageId)
+        ).map(object -> toProfileImage(object, null)));
+        if (size == null) {
+            return original;
+        }
+
+        return Mono.fromRunnable(() -> ProfileImageVariantService.checkSize(size))
+                .then(s3Service.getObject(
+                        buckets.getCustomer(),
+                        ProfileImageVariantService.variantKey(customerId, profileImageId, size)
+                ))
+                .map(object -> toProfileImage(object, size))
+                .onErrorResume(NoSuchKeyException.class, e -> {
+                    // the variant pool renders it off the event loop, the next request finds it
+                    profileImageVariantService.generate(customerId, profileImageId, size);
+                    return original;
+                });
+    }
+
+    private static ProfileImageStream toProfileImage(S3ObjectStream object, Integer size) {
+        return new ProfileImageStream(
+                object.content(),
+                object.contentLength(),
+                object.lastModified(),
+                size
+        );
+    }
+}
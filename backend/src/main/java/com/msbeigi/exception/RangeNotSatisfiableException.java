@@ -0,0 +1,20 @@
+package com.msbeigi.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(code = HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+public class RangeNotSatisfiableException extends RuntimeException {
+
+    // null when the store rejected the range without telling us the object size
+    private final Long completeLength;
+
+    public RangeNotSatisfiableException(String message, Long completeLength) {
+        super(message);
+        this.completeLength = completeLength;
+    }
+
+    public Long getCompleteLength() {
+        return completeLength;
+    }
+}
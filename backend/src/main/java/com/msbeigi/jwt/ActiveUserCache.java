@@ -0,0 +1,40 @@
+package com.msbeigi.jwt;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.msbeigi.customer.CustomerDao;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Component
+public class ActiveUserCache {
+
+    private final LoadingCache<String, Boolean> cache;
+
+    public ActiveUserCache(@Qualifier("jpa") CustomerDao customerDao,
+                           MeterRegistry meterRegistry,
+                           @Value("${jwt.cache.maximum-size}") long maximumSize,
+                           @Value("${jwt.stateless.user-check-ttl}") Duration userCheckTtl) {
+        // deletes and email changes invalidate this node right away, other nodes keep accepting
+        // the user for at most userCheckTtl
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(userCheckTtl)
+                .recordStats()
+                .build(customerDao::existCustomerWithEmail);
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "jwt.active-users");
+    }
+
+    public boolean isActive(String username) {
+        return cache.get(username);
+    }
+
+    public void invalidate(String username) {
+        cache.invalidate(username);
+    }
+}
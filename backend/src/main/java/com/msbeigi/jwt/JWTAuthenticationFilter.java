@@ -5,7 +5,11 @@ import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
@@ -14,16 +18,28 @@ import org.springframework.web.filter.OncePerRequestFilter;
 import reactor.util.annotation.NonNull;
 
 import java.io.IOException;
+import java.util.Collection;
 
 @Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class JWTAuthenticationFilter extends OncePerRequestFilter {
 
     private final JWTUtil jwtUtil;
+    private final VerifiedTokenCache verifiedTokenCache;
     private final UserDetailsService userDetailsService;
+    private final ActiveUserCache activeUserCache;
+    private final boolean stateless;
 
-    public JWTAuthenticationFilter(JWTUtil jwtUtil, UserDetailsService userDetailsService) {
+    public JWTAuthenticationFilter(JWTUtil jwtUtil,
+                                   VerifiedTokenCache verifiedTokenCache,
+                                   UserDetailsService userDetailsService,
+                                   ActiveUserCache activeUserCache,
+                                   @Value("${jwt.stateless.enabled}") boolean stateless) {
         this.jwtUtil = jwtUtil;
+        this.verifiedTokenCache = verifiedTokenCache;
         this.userDetailsService = userDetailsService;
+        this.activeUserCache = activeUserCache;
+        this.stateless = stateless;
     }
 
     @Override
@@ -39,22 +55,39 @@ public class JWTAuthenticationFilter extends OncePerRequestFilter {
         }
 
         String jwt = authHeader.substring(7);
-        String subject = jwtUtil.getSubject(jwt);
+        VerifiedToken token = verifiedTokenCache.verify(jwt);
+        String subject = token.subject();
 
         if (subject != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            UserDetails userDetails = userDetailsService.loadUserByUsername(subject);
-            if (jwtUtil.isTokenValid(jwt, userDetails.getUsername())) {
-                UsernamePasswordAuthenticationToken authenticationToken =
-                        new UsernamePasswordAuthenticationToken(
-                                userDetails, null, userDetails.getAuthorities()
-                        );
-                authenticationToken.setDetails(
-                        new WebAuthenticationDetailsSource().buildDetails(request)
-                );
-                SecurityContextHolder.getContext().setAuthentication(authenticationToken);
+            if (stateless) {
+                // authorities come from the verified scopes claim, no user lookup
+                if (!token.isExpired() && activeUserCache.isActive(subject)) {
+                    authenticate(request, subject, token.scopes()
+                            .stream()
+                            .map(SimpleGrantedAuthority::new)
+                            .toList());
+                }
+            } else {
+                UserDetails userDetails = userDetailsService.loadUserByUsername(subject);
+                if (jwtUtil.isTokenValid(token, userDetails.getUsername())) {
+                    authenticate(request, userDetails, userDetails.getAuthorities());
+                }
             }
         }
 
         filterChain.doFilter(request, response);
     }
+
+    private void authenticate(HttpServletRequest request,
+                              Object principal,
+                              Collection<? extends GrantedAuthority> authorities) {
+        UsernamePasswordAuthenticationToken authenticationToken =
+                new UsernamePasswordAuthenticationToken(
+                        principal, null, authorities
+                );
+        authenticationToken.setDetails(
+                new WebAuthenticationDetailsSource().buildDetails(request)
+        );
+        SecurityContextHolder.getContext().setAuthentication(authenticationToken);
+    }
 }
@@ -0,0 +1,76 @@
+package com.msbeigi.jwt;
+
+import com.msbeigi.customer.ReactiveCustomerDao;
+import io.jsonwebtoken.JwtException;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.ReactiveAuthenticationManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+// the reactive counterpart of JWTAuthenticationFilter, the credentials are the raw bearer token
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class JWTReactiveAuthenticationManager implements ReactiveAuthenticationManager {
+
+    private final JWTUtil jwtUtil;
+    private final VerifiedTokenCache verifiedTokenCache;
+    private final ReactiveCustomerDao customerDao;
+    private final ActiveUserCache activeUserCache;
+    private final boolean stateless;
+
+    public JWTReactiveAuthenticationManager(JWTUtil jwtUtil,
+                                            VerifiedTokenCache verifiedTokenCache,
+                                            @Qualifier("r2dbc") ReactiveCustomerDao customerDao,
+                                            ActiveUserCache activeUserCache,
+                                            @Value("${jwt.stateless.enabled}") boolean stateless) {
+        this.jwtUtil = jwtUtil;
+        this.verifiedTokenCache = verifiedTokenCache;
+        this.customerDao = customerDao;
+        this.activeUserCache = activeUserCache;
+        this.stateless = stateless;
+    }
+
+    @Override
+    public Mono<Authentication> authenticate(Authentication authentication) {
+        String jwt = (String) authentication.getCredentials();
+        return Mono.fromCallable(() -> verifiedTokenCache.verify(jwt))
+                .onErrorMap(e -> e instanceof JwtException || e instanceof IllegalArgumentException,
+                        e -> new BadCredentialsException(e.getMessage(), e))
+                .flatMap(token -> stateless ? authenticateStateless(token) : authenticateUser(token))
+                .switchIfEmpty(Mono.error(() -> new BadCredentialsException("invalid token")));
+    }
+
+    private Mono<Authentication> authenticateStateless(VerifiedToken token) {
+        if (token.subject() == null || token.isExpired()) {
+            return Mono.empty();
+        }
+        // a cache miss is a blocking jpa lookup, keep it off the event loop
+        return Mono.fromCallable(() -> activeUserCache.isActive(token.subject()))
+                .subscribeOn(Schedulers.boundedElastic())
+                .filter(Boolean::booleanValue)
+                .map(active -> UsernamePasswordAuthenticationToken.authenticated(
+                        token.subject(),
+                        null,
+                        token.scopes()
+                                .stream()
+                                .map(SimpleGrantedAuthority::new)
+                                .toList()));
+    }
+
+    private Mono<Authentication> authenticateUser(VerifiedToken token) {
+        if (token.subject() == null) {
+            return Mono.empty();
+        }
+        return customerDao.selectUserByEmail(token.subject())
+                .filter(customer -> jwtUtil.isTokenValid(token, customer.getUsername()))
+                .map(customer -> UsernamePasswordAuthenticationToken.authenticated(
+                        customer, null, customer.getAuthorities()));
+    }
+}
@@ -1,6 +1,7 @@
 package com.msbeigi.jwt;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
@@ -19,6 +20,12 @@ public class JWTUtil {
     private static final String SECRET_KEY =
             "foobar_123456789_foobar_123456789_foobar_123456789_foobar_123456789";
 
+    private final Key signingKey = Keys.hmacShaKeyFor(SECRET_KEY.getBytes());
+    private final JwtParser parser = Jwts
+            .parserBuilder()
+            .setSigningKey(signingKey)
+            .build();
+
     public String issueToken(String subject) {
         return issueToken(subject, Map.of());
     }
@@ -52,26 +59,31 @@ public class JWTUtil {
         return getClaims(token).getSubject();
     }
 
+    public VerifiedToken verify(String token) {
+        Claims claims = getClaims(token);
+        List<?> scopes = claims.get("scopes", List.class);
+        return new VerifiedToken(
+                claims.getSubject(),
+                scopes == null ? List.of() : scopes.stream().map(String::valueOf).toList(),
+                claims.getExpiration().toInstant()
+        );
+    }
+
     private Claims getClaims(String token) {
-        return Jwts
-                .parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
+        return parser
                 .parseClaimsJws(token)
                 .getBody();
     }
 
     private Key getSigningKey() {
-        return Keys.hmacShaKeyFor(SECRET_KEY.getBytes());
+        return signingKey;
     }
 
     public boolean isTokenValid(String jwt, String username) {
-        String subject = getSubject(jwt);
-        return subject.equals(username) && !isTokenExpired(jwt);
+        return isTokenValid(verify(jwt), username);
     }
 
-    private boolean isTokenExpired(String jwt) {
-        Date today = Date.from(Instant.now());
-        return getClaims(jwt).getExpiration().before(today);
+    public boolean isTokenValid(VerifiedToken token, String username) {
+        return token.subject().equals(username) && !token.isExpired();
     }
 }
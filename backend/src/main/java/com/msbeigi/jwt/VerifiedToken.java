@@ -0,0 +1,14 @@
+package com.msbeigi.jwt;
+
+import java.time.Instant;
+import java.util.List;
+
+public record VerifiedToken(
+        String subject,
+        List<String> scopes,
+        Instant expiresAt) {
+
+    public boolean isExpired() {
+        return expiresAt.isBefore(Instant.now());
+    }
+}
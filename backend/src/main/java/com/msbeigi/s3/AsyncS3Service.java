@@ -0,0 +1,188 @@
+package com.msbeigi.s3;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompletedMultipartUpload;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Service
+public class AsyncS3Service {
+
+    private final S3AsyncClient s3;
+    private final long multipartThreshold;
+    private final long partSize;
+    private final int maxConcurrentParts;
+
+    public AsyncS3Service(S3AsyncClient s3,
+                          @Value("${aws.s3.multipart.threshold}") DataSize multipartThreshold,
+                          @Value("${aws.s3.multipart.part-size}") DataSize partSize,
+                          @Value("${aws.s3.multipart.max-concurrent-parts}") int maxConcurrentParts) {
+        this.s3 = s3;
+        this.multipartThreshold = multipartThreshold.toBytes();
+        this.partSize = partSize.toBytes();
+        this.maxConcurrentParts = maxConcurrentParts;
+    }
+
+    public CompletableFuture<Void> putObject(String bucketName, String key, Path file) {
+        long contentLength;
+        try {
+            contentLength = Files.size(file);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(new UncheckedIOException(e));
+        }
+
+        if (contentLength < multipartThreshold) {
+            PutObjectRequest objectRequest = PutObjectRequest
+                    .builder()
+                    .bucket(bucketName)
+                    .key(key)
+                    .contentLength(contentLength)
+                    .build();
+            return s3.putObject(objectRequest, AsyncRequestBody.fromFile(file))
+                    .thenApply(response -> null);
+        }
+        return putObjectInParts(bucketName, key, file, contentLength);
+    }
+
+    private CompletableFuture<Void> putObjectInParts(String bucketName, String key, Path file, long contentLength) {
+        CreateMultipartUploadRequest createRequest = CreateMultipartUploadRequest
+                .builder()
+                .bucket(bucketName)
+                .key(key)
+                .build();
+        return s3.createMultipartUpload(createRequest).thenCompose(created -> {
+            String uploadId = created.uploadId();
+            return uploadParts(bucketName, key, uploadId, file, contentLength)
+                    .thenCompose(parts -> s3.completeMultipartUpload(CompleteMultipartUploadRequest
+                            .builder()
+                            .bucket(bucketName)
+                            .key(key)
+                            .uploadId(uploadId)
+                            .multipartUpload(CompletedMultipartUpload.builder().parts(parts).build())
+                            .build()))
+                    .<Void>thenApply(response -> null)
+                    // s3 keeps, and bills, the uploaded parts of an upload that is neither completed nor aborted
+                    .exceptionallyCompose(e -> s3.abortMultipartUpload(AbortMultipartUploadRequest
+                                    .builder()
+                                    .bucket(bucketName)
+                                    .key(key)
+                                    .uploadId(uploadId)
+                                    .build())
+                            .handle((response, abortError) -> {
+                                throw e instanceof CompletionException completionException
+                                        ? completionException
+                                        : new CompletionException(e);
+                            }));
+        });
+    }
+
+    private CompletableFuture<CompletedPart[]> uploadParts(String bucketName, String key, String uploadId,
+                                                           Path file, long contentLength) {
+        AsynchronousFileChannel channel;
+        try {
+            channel = AsynchronousFileChannel.open(file, StandardOpenOption.READ);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(new UncheckedIOException(e));
+        }
+
+        int partCount = (int) ((contentLength + partSize - 1) / partSize);
+        CompletedPart[] parts = new CompletedPart[partCount];
+        AtomicInteger nextPart = new AtomicInteger();
+        // each lane uploads one part at a time and then takes the next, so at most maxConcurrentParts
+        // parts are read into memory and in flight together
+        CompletableFuture<?>[] lanes = new CompletableFuture<?>[Math.min(maxConcurrentParts, partCount)];
+        for (int i = 0; i < lanes.length; i++) {
+            lanes[i] = uploadNextParts(bucketName, key, uploadId, channel, contentLength, parts, nextPart);
+        }
+        return CompletableFuture.allOf(lanes)
+                .whenComplete((result, e) -> closeQuietly(channel))
+                .thenApply(result -> parts);
+    }
+
+    private CompletableFuture<Void> uploadNextParts(String bucketName, String key, String uploadId,
+                                                    AsynchronousFileChannel channel, long contentLength,
+                                                    CompletedPart[] parts, AtomicInteger nextPart) {
+        int index = nextPart.getAndIncrement();
+        if (index >= parts.length) {
+            return CompletableFuture.completedFuture(null);
+        }
+        long position = index * partSize;
+        int length = (int) Math.min(partSize, contentLength - position);
+        int partNumber = index + 1;
+        return read(channel, position, length)
+                .thenCompose(buffer -> s3.uploadPart(UploadPartRequest
+                                .builder()
+                                .bucket(bucketName)
+                                .key(key)
+                                .uploadId(uploadId)
+                                .partNumber(partNumber)
+                                .contentLength((long) length)
+                                .build(),
+                        AsyncRequestBody.fromByteBuffer(buffer)))
+                .thenCompose(response -> {
+                    parts[index] = CompletedPart.builder()
+                            .partNumber(partNumber)
+                            .eTag(response.eTag())
+                            .build();
+                    return uploadNextParts(bucketName, key, uploadId, channel, contentLength, parts, nextPart);
+                })
+                .whenComplete((result, e) -> {
+                    if (e != null) {
+                        // the upload is lost, stop the other lanes from starting new parts
+                        nextPart.set(parts.length);
+                    }
+                });
+    }
+
+    private static CompletableFuture<ByteBuffer> read(AsynchronousFileChannel channel, long position, int length) {
+        CompletableFuture<ByteBuffer> future = new CompletableFuture<>();
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        channel.read(buffer, position, buffer, new CompletionHandler<>() {
+            @Override
+            public void completed(Integer read, ByteBuffer attachment) {
+                if (read < 0) {
+                    future.completeExceptionally(new IOException("file ended before byte %s".formatted(position + length)));
+                } else if (attachment.hasRemaining()) {
+                    // a single read may return fewer bytes than asked for
+                    channel.read(attachment, position + attachment.position(), attachment, this);
+                } else {
+                    future.complete(attachment.flip());
+                }
+            }
+
+            @Override
+            public void failed(Throwable e, ByteBuffer attachment) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    private static void closeQuietly(AsynchronousFileChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+            // read only, nothing is lost
+        }
+    }
+}
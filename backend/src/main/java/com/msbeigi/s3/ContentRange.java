@@ -0,0 +1,40 @@
+package com.msbeigi.s3;
+
+import com.msbeigi.exception.RangeNotSatisfiableException;
+import org.springframework.http.HttpRange;
+
+// the inclusive byte span of an object that a partial response carries
+public record ContentRange(long start, long end, long completeLength) {
+
+    public static ContentRange of(HttpRange range, long completeLength) {
+        long start = range.getRangeStart(completeLength);
+        long end = range.getRangeEnd(completeLength);
+        // HttpRange clamps the end to the object but leaves a start past it alone
+        if (start > end) {
+            throw new RangeNotSatisfiableException(
+                    "range [%s] is not satisfiable".formatted(range), completeLength);
+        }
+        return new ContentRange(start, end, completeLength);
+    }
+
+    // parses the "bytes 0-99/200" form s3 sends back for a ranged get
+    public static ContentRange parse(String contentRange) {
+        if (contentRange == null) {
+            return null;
+        }
+        String[] spanAndLength = contentRange.substring("bytes ".length()).split("/");
+        String[] span = spanAndLength[0].split("-");
+        return new ContentRange(
+                Long.parseLong(span[0]),
+                Long.parseLong(span[1]),
+                Long.parseLong(spanAndLength[1]));
+    }
+
+    public long length() {
+        return end - start + 1;
+    }
+
+    public String headerValue() {
+        return "bytes %s-%s/%s".formatted(start, end, completeLength);
+    }
+}
@@ -1,7 +1,7 @@
 package com.msbeigi.s3;
 
 import org.apache.commons.io.FileUtils;
-import org.apache.commons.io.IOUtils;
+import org.springframework.http.HttpRange;
 import software.amazon.awssdk.awscore.exception.AwsServiceException;
 import software.amazon.awssdk.core.ResponseInputStream;
 import software.amazon.awssdk.core.exception.SdkClientException;
@@ -10,12 +10,27 @@ import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.model.*;
 
 import java.io.*;
+import java.net.URLEncoder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
 
 public class FakeS3 implements S3Client {
 
     private static final String PATH =
             System.getProperty("user.home") + "/.msbeigi/s3";
 
+    private final String root;
+
+    public FakeS3() {
+        this(PATH);
+    }
+
+    public FakeS3(String root) {
+        this.root = root;
+    }
+
     @Override
     public String serviceName() {
         return "fake";
@@ -31,14 +46,12 @@ public class FakeS3 implements S3Client {
             PutObjectRequest putObjectRequest,
             RequestBody requestBody) throws AwsServiceException,
             SdkClientException {
-        InputStream inputStream = requestBody.contentStreamProvider().newStream();
-        try {
-            byte[] bytes = IOUtils.toByteArray(inputStream);
-            FileUtils.writeByteArrayToFile(
+        try (InputStream inputStream = requestBody.contentStreamProvider().newStream()) {
+            FileUtils.copyInputStreamToFile(
+                    inputStream,
                     new File(
                             buildObjectFullPath(putObjectRequest.bucket(), putObjectRequest.key())
-                    ),
-                    bytes
+                    )
             );
             return PutObjectResponse.builder().build();
         } catch (IOException e) {
@@ -49,21 +62,72 @@ public class FakeS3 implements S3Client {
     @Override
     public ResponseInputStream<GetObjectResponse> getObject(
             GetObjectRequest getObjectRequest) throws AwsServiceException, SdkClientException {
+        File file = new File(
+                buildObjectFullPath(getObjectRequest.bucket(), getObjectRequest.key())
+        );
+        if (getObjectRequest.range() != null) {
+            return getObjectRange(getObjectRequest, file);
+        }
         try {
-            FileInputStream fileInputStream = new FileInputStream(
-                    buildObjectFullPath(getObjectRequest.bucket(), getObjectRequest.key())
-            );
+            FileInputStream fileInputStream = new FileInputStream(file);
             return new ResponseInputStream<>(
-                    GetObjectResponse.builder().build(),
+                    GetObjectResponse.builder()
+                            .contentLength(file.length())
+                            .lastModified(Instant.ofEpochMilli(file.lastModified()))
+                            .build(),
                     fileInputStream
             );
         } catch (FileNotFoundException e) {
+            // behave like s3 so callers can tell a missing key from other failures
+            throw NoSuchKeyException.builder()
+                    .message("The specified key does not exist: " + getObjectRequest.key())
+                    .cause(e)
+                    .build();
+        }
+    }
+
+    @Override
+    public DeleteObjectResponse deleteObject(
+            DeleteObjectRequest deleteObjectRequest) throws AwsServiceException, SdkClientException {
+        // like s3, deleting a missing key succeeds
+        new File(buildObjectFullPath(deleteObjectRequest.bucket(), deleteObjectRequest.key())).delete();
+        return DeleteObjectResponse.builder().build();
+    }
+
+    private ResponseInputStream<GetObjectResponse> getObjectRange(GetObjectRequest getObjectRequest, File file) {
+        if (!file.isFile()) {
+            throw NoSuchKeyException.builder()
+                    .message("The specified key does not exist: " + getObjectRequest.key())
+                    .build();
+        }
+        long size = file.length();
+        HttpRange range = HttpRange.parseRanges(getObjectRequest.range()).get(0);
+        long start = range.getRangeStart(size);
+        long end = range.getRangeEnd(size);
+        if (start > end) {
+            throw S3Exception.builder()
+                    .statusCode(416)
+                    .message("The requested range is not satisfiable")
+                    .build();
+        }
+        try {
+            FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+            return new ResponseInputStream<>(
+                    GetObjectResponse.builder()
+                            .contentLength(end - start + 1)
+                            .contentRange("bytes %s-%s/%s".formatted(start, end, size))
+                            .lastModified(Instant.ofEpochMilli(file.lastModified()))
+                            .build(),
+                    new FileChannelInputStream(channel, start, end + 1)
+            );
+        } catch (IOException e) {
             throw new RuntimeException(e);
         }
     }
 
     private String buildObjectFullPath(String bucketName, String key) {
-        return PATH + "/" + bucketName + "/" + key;
+        // keys are stored flat, otherwise "a/b" and "a/b/c" would need "a/b" to be both a file and a directory
+        return root + "/" + bucketName + "/" + URLEncoder.encode(key, StandardCharsets.UTF_8);
     }
 
 }
@@ -0,0 +1,201 @@
+package com.msbeigi.s3;
+
+import org.apache.commons.io.FileUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.core.async.AsyncResponseTransformer;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.model.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+// uses the same directory layout as FakeS3, parts of multipart uploads wait in a directory per upload
+public class FakeS3Async implements S3AsyncClient {
+
+    private static final String PATH =
+            System.getProperty("user.home") + "/.msbeigi/s3";
+
+    private final String root;
+
+    public FakeS3Async() {
+        this(PATH);
+    }
+
+    public FakeS3Async(String root) {
+        this.root = root;
+    }
+
+    @Override
+    public String serviceName() {
+        return "fake";
+    }
+
+    @Override
+    public void close() {
+
+    }
+
+    @Override
+    public <T> CompletableFuture<T> getObject(
+            GetObjectRequest getObjectRequest,
+            AsyncResponseTransformer<GetObjectResponse, T> asyncResponseTransformer) {
+        CompletableFuture<T> future = asyncResponseTransformer.prepare();
+        File file = new File(
+                buildObjectFullPath(getObjectRequest.bucket(), getObjectRequest.key())
+        );
+        if (!file.isFile()) {
+            NoSuchKeyException e = NoSuchKeyException.builder()
+                    .message("The specified key does not exist: " + getObjectRequest.key())
+                    .build();
+            asyncResponseTransformer.exceptionOccurred(e);
+            return CompletableFuture.failedFuture(e);
+        }
+
+        asyncResponseTransformer.onResponse(
+                GetObjectResponse.builder()
+                        .contentLength(file.length())
+                        .lastModified(Instant.ofEpochMilli(file.lastModified()))
+                        .build()
+        );
+        // read through an AsynchronousFileChannel, like the real client the caller's thread never blocks on io
+        asyncResponseTransformer.onStream(AsyncRequestBody.fromFile(file.toPath()));
+        return future;
+    }
+
+    @Override
+    public CompletableFuture<PutObjectResponse> putObject(
+            PutObjectRequest putObjectRequest,
+            AsyncRequestBody requestBody) {
+        Path target = Path.of(buildObjectFullPath(putObjectRequest.bucket(), putObjectRequest.key()));
+        return write(requestBody, target)
+                .thenApply(written -> PutObjectResponse.builder().build());
+    }
+
+    @Override
+    public CompletableFuture<CreateMultipartUploadResponse> createMultipartUpload(
+            CreateMultipartUploadRequest createMultipartUploadRequest) {
+        String uploadId = UUID.randomUUID().toString();
+        try {
+            Files.createDirectories(uploadPath(uploadId));
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(new UncheckedIOException(e));
+        }
+        return CompletableFuture.completedFuture(CreateMultipartUploadResponse.builder()
+                .bucket(createMultipartUploadRequest.bucket())
+                .key(createMultipartUploadRequest.key())
+                .uploadId(uploadId)
+                .build());
+    }
+
+    @Override
+    public CompletableFuture<UploadPartResponse> uploadPart(
+            UploadPartRequest uploadPartRequest,
+            AsyncRequestBody requestBody) {
+        Path part = uploadPath(uploadPartRequest.uploadId())
+                .resolve(String.valueOf(uploadPartRequest.partNumber()));
+        return write(requestBody, part)
+                .thenApply(written -> UploadPartResponse.builder()
+                        .eTag("\"%s\"".formatted(uploadPartRequest.partNumber()))
+                        .build());
+    }
+
+    @Override
+    public CompletableFuture<CompleteMultipartUploadResponse> completeMultipartUpload(
+            CompleteMultipartUploadRequest completeMultipartUploadRequest) {
+        Path upload = uploadPath(completeMultipartUploadRequest.uploadId());
+        Path target = Path.of(buildObjectFullPath(
+                completeMultipartUploadRequest.bucket(), completeMultipartUploadRequest.key()));
+        try {
+            Files.createDirectories(target.getParent());
+            try (FileChannel out = FileChannel.open(target,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                for (CompletedPart completedPart : completeMultipartUploadRequest.multipartUpload().parts()) {
+                    Path part = upload.resolve(String.valueOf(completedPart.partNumber()));
+                    if (!Files.isRegularFile(part)) {
+                        return CompletableFuture.failedFuture(S3Exception.builder()
+                                .message("One or more of the specified parts could not be found: "
+                                        + completedPart.partNumber())
+                                .statusCode(400)
+                                .build());
+                    }
+                    try (FileChannel in = FileChannel.open(part, StandardOpenOption.READ)) {
+                        in.transferTo(0, in.size(), out);
+                    }
+                }
+            }
+            FileUtils.deleteDirectory(upload.toFile());
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(new UncheckedIOException(e));
+        }
+        return CompletableFuture.completedFuture(CompleteMultipartUploadResponse.builder()
+                .bucket(completeMultipartUploadRequest.bucket())
+                .key(completeMultipartUploadRequest.key())
+                .build());
+    }
+
+    @Override
+    public CompletableFuture<AbortMultipartUploadResponse> abortMultipartUpload(
+            AbortMultipartUploadRequest abortMultipartUploadRequest) {
+        try {
+            FileUtils.deleteDirectory(uploadPath(abortMultipartUploadRequest.uploadId()).toFile());
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(new UncheckedIOException(e));
+        }
+        return CompletableFuture.completedFuture(AbortMultipartUploadResponse.builder().build());
+    }
+
+    private static CompletableFuture<Void> write(AsyncRequestBody requestBody, Path target) {
+        return Mono.using(
+                        () -> {
+                            Files.createDirectories(target.getParent());
+                            return FileChannel.open(target, StandardOpenOption.CREATE,
+                                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+                        },
+                        channel -> Flux.from(requestBody)
+                                .doOnNext(buffer -> write(channel, buffer))
+                                .then(),
+                        FakeS3Async::close
+                )
+                .toFuture();
+    }
+
+    private static void write(FileChannel channel, ByteBuffer buffer) {
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void close(FileChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Path uploadPath(String uploadId) {
+        return Path.of(root, ".multipart-uploads", uploadId);
+    }
+
+    private String buildObjectFullPath(String bucketName, String key) {
+        return root + "/" + bucketName + "/" + URLEncoder.encode(key, StandardCharsets.UTF_8);
+    }
+
+}
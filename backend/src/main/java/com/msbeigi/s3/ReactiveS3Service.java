@@ -0,0 +1,33 @@
+package com.msbeigi.s3;
+
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import software.amazon.awssdk.core.async.AsyncResponseTransformer;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+
+@Service
+public class ReactiveS3Service {
+
+    private final S3AsyncClient s3;
+
+    public ReactiveS3Service(S3AsyncClient s3) {
+        this.s3 = s3;
+    }
+
+    public Mono<S3ObjectStream> getObject(String bucketName, String key) {
+        GetObjectRequest getObjectRequest = GetObjectRequest
+                .builder()
+                .bucket(bucketName)
+                .key(key)
+                .build();
+        // completes with the response headers, the body is streamed as the subscriber requests it
+        return Mono.fromFuture(() -> s3.getObject(getObjectRequest, AsyncResponseTransformer.toPublisher()))
+                .map(response -> new S3ObjectStream(
+                        Flux.from(response),
+                        response.response().contentLength(),
+                        response.response().lastModified()
+                ));
+    }
+}
@@ -4,6 +4,7 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
 import software.amazon.awssdk.services.s3.S3Client;
 
 import java.net.URI;
@@ -26,4 +27,14 @@ public class S3Config {
                 .region(Region.of(awsRegion))
                 .build();
     }
+
+    @Bean
+    public S3AsyncClient s3AsyncClient() {
+        if (mock) {
+            return new FakeS3Async();
+        }
+        return S3AsyncClient.builder()
+                .region(Region.of(awsRegion))
+                .build();
+    }
 }
@@ -0,0 +1,221 @@
+package com.msbeigi.s3;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.msbeigi.exception.RangeNotSatisfiableException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.apache.commons.io.file.PathUtils;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpRange;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.HexFormat;
+
+@Component
+public class S3ObjectCache implements DisposableBean {
+
+    private static final String INSTANCE_PREFIX = "instance-";
+    private static final String LOCK_FILE = ".lock";
+
+    private final S3Service s3Service;
+    private final boolean enabled;
+    private final Path directory;
+    private final Cache<String, Entry> cache;
+    private FileChannel lock;
+
+    public S3ObjectCache(S3Service s3Service,
+                         MeterRegistry meterRegistry,
+                         @Value("${aws.s3.cache.enabled}") boolean enabled,
+                         @Value("${aws.s3.cache.directory}") Path directory,
+                         @Value("${aws.s3.cache.maximum-size}") DataSize maximumSize) {
+        this.s3Service = s3Service;
+        this.enabled = enabled;
+        // the index lives in memory, so files left by a previous run would never be evicted.
+        // the configured directory may be shared or mistyped, so only locked instance directories are ever ours
+        this.directory = enabled ? prepareDirectory(directory) : directory;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maximumSize.toBytes())
+                .weigher((String name, Entry entry) -> (int) Math.min(Integer.MAX_VALUE, entry.size()))
+                // evict on the calling thread so disk usage never runs ahead of the bound
+                .executor(Runnable::run)
+                .evictionListener((String name, Entry entry, RemovalCause cause) -> delete(entry.path()))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "s3.objects");
+        Gauge.builder("s3.objects.cache.hit.ratio", cache, c -> c.stats().hitRate())
+                .register(meterRegistry);
+        Gauge.builder("s3.objects.cache.disk.bytes", cache,
+                        c -> c.policy().eviction().orElseThrow().weightedSize().orElse(0))
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    public S3ObjectContent getObject(String bucketName, String key) {
+        return getObject(bucketName, key, null);
+    }
+
+    public S3ObjectContent getObject(String bucketName, String key, HttpRange range) {
+        if (!enabled) {
+            ResponseInputStream<GetObjectResponse> object = s3Service.getObjectStream(bucketName, key, range);
+            return new S3ObjectContent(
+                    object,
+                    object.response().contentLength(),
+                    object.response().lastModified(),
+                    ContentRange.parse(object.response().contentRange())
+            );
+        }
+
+        String name = fileName(bucketName, key);
+        Entry entry = cache.getIfPresent(name);
+        if (entry != null) {
+            try {
+                return open(entry, range);
+            } catch (NoSuchFileException e) {
+                // lost a race with eviction of the same name, fetch it again
+                cache.invalidate(name);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        // a miss caches the whole object, so later ranges of it are served from disk
+        return fetch(bucketName, key, name, range);
+    }
+
+    private S3ObjectContent fetch(String bucketName, String key, String name, HttpRange range) {
+        Path temp = null;
+        try (ResponseInputStream<GetObjectResponse> object = s3Service.getObjectStream(bucketName, key)) {
+            temp = Files.createTempFile(directory, name, ".tmp");
+            long size = Files.copy(object, temp, StandardCopyOption.REPLACE_EXISTING);
+            Instant lastModified = object.response().lastModified();
+            if (lastModified != null) {
+                Files.setLastModifiedTime(temp, FileTime.from(lastModified));
+            }
+
+            Path target = directory.resolve(name);
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            Entry entry = new Entry(target, size, lastModified);
+            // open before publishing so an immediate eviction cannot pull the file from under us
+            FileChannel channel = FileChannel.open(target, StandardOpenOption.READ);
+            cache.put(name, entry);
+            return content(entry, channel, range);
+        } catch (IOException e) {
+            throw new UncheckedIOException("failed to cache s3 object [%s]".formatted(key), e);
+        } finally {
+            if (temp != null) {
+                delete(temp);
+            }
+        }
+    }
+
+    private S3ObjectContent open(Entry entry, HttpRange range) throws IOException {
+        return content(entry, FileChannel.open(entry.path(), StandardOpenOption.READ), range);
+    }
+
+    private static S3ObjectContent content(Entry entry, FileChannel channel, HttpRange range) throws IOException {
+        if (range == null) {
+            return new S3ObjectContent(
+                    new FileChannelInputStream(channel),
+                    entry.size(),
+                    entry.lastModified()
+            );
+        }
+        ContentRange contentRange;
+        try {
+            contentRange = ContentRange.of(range, entry.size());
+        } catch (RangeNotSatisfiableException e) {
+            channel.close();
+            throw e;
+        }
+        return new S3ObjectContent(
+                new FileChannelInputStream(channel, contentRange.start(), contentRange.end() + 1),
+                contentRange.length(),
+                entry.lastModified(),
+                contentRange
+        );
+    }
+
+    private Path prepareDirectory(Path parent) {
+        try {
+            Files.createDirectories(parent);
+            removeAbandonedInstances(parent);
+            // lock before the directory gets its instance name so no sweep can see it unlocked
+            Path staging = Files.createTempDirectory(parent, ".staging-");
+            lock = FileChannel.open(staging.resolve(LOCK_FILE),
+                    StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            lock.lock();
+            return Files.move(staging,
+                    parent.resolve(INSTANCE_PREFIX + staging.getFileName().toString().substring(".staging-".length())),
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("failed to prepare s3 cache directory [%s]".formatted(parent), e);
+        }
+    }
+
+    // an instance directory whose lock can be taken belongs to a process that is gone
+    private static void removeAbandonedInstances(Path parent) throws IOException {
+        try (DirectoryStream<Path> instances = Files.newDirectoryStream(parent, INSTANCE_PREFIX + "*")) {
+            for (Path instance : instances) {
+                Path lockFile = instance.resolve(LOCK_FILE);
+                if (!Files.isRegularFile(lockFile, LinkOption.NOFOLLOW_LINKS)) {
+                    continue;
+                }
+                try (FileChannel channel = FileChannel.open(lockFile, StandardOpenOption.WRITE);
+                     FileLock abandoned = channel.tryLock()) {
+                    if (abandoned != null) {
+                        PathUtils.deleteDirectory(instance);
+                    }
+                } catch (OverlappingFileLockException | NoSuchFileException e) {
+                    // still owned by a cache in this jvm, or removed by another instance starting up
+                }
+            }
+        }
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        if (lock == null) {
+            return;
+        }
+        lock.close();
+        PathUtils.deleteDirectory(directory);
+    }
+
+    private static void delete(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException ignored) {
+            // an orphaned file is cleaned up on the next start
+        }
+    }
+
+    private static String fileName(String bucketName, String key) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(
+                    digest.digest((bucketName + "/" + key).getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private record Entry(Path path, long size, Instant lastModified) {
+    }
+}
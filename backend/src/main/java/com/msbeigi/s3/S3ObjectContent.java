@@ -0,0 +1,15 @@
+package com.msbeigi.s3;
+
+import java.io.InputStream;
+import java.time.Instant;
+
+public record S3ObjectContent(
+        InputStream content,
+        Long contentLength,
+        Instant lastModified,
+        ContentRange contentRange) {
+
+    public S3ObjectContent(InputStream content, Long contentLength, Instant lastModified) {
+        this(content, contentLength, lastModified, null);
+    }
+}
@@ -0,0 +1,12 @@
+package com.msbeigi.s3;
+
+import reactor.core.publisher.Flux;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+
+public record S3ObjectStream(
+        Flux<ByteBuffer> content,
+        Long contentLength,
+        Instant lastModified) {
+}
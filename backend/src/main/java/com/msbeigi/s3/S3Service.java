@@ -1,14 +1,21 @@
 package com.msbeigi.s3;
 
+import com.msbeigi.exception.RangeNotSatisfiableException;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import software.amazon.awssdk.core.ResponseInputStream;
 import software.amazon.awssdk.core.sync.RequestBody;
 import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
 import software.amazon.awssdk.services.s3.model.GetObjectRequest;
 import software.amazon.awssdk.services.s3.model.GetObjectResponse;
 import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.S3Exception;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
 
 @Service
 public class S3Service {
@@ -28,6 +35,25 @@ public class S3Service {
         s3.putObject(objectRequest, RequestBody.fromBytes(file));
     }
 
+    public void putObject(String bucketName, String key, InputStream inputStream, long contentLength) {
+        PutObjectRequest objectRequest = PutObjectRequest
+                .builder()
+                .bucket(bucketName)
+                .key(key)
+                .contentLength(contentLength)
+                .build();
+        s3.putObject(objectRequest, RequestBody.fromInputStream(inputStream, contentLength));
+    }
+
+    public void deleteObject(String bucketName, String key) {
+        DeleteObjectRequest deleteObjectRequest = DeleteObjectRequest
+                .builder()
+                .bucket(bucketName)
+                .key(key)
+                .build();
+        s3.deleteObject(deleteObjectRequest);
+    }
+
     public byte[] getObject(String bucketName, String key) {
         GetObjectRequest getObjectRequest = GetObjectRequest
                 .builder()
@@ -41,4 +67,26 @@ public class S3Service {
             throw new RuntimeException(e);
         }
     }
+
+    public ResponseInputStream<GetObjectResponse> getObjectStream(String bucketName, String key) {
+        return getObjectStream(bucketName, key, null);
+    }
+
+    public ResponseInputStream<GetObjectResponse> getObjectStream(String bucketName, String key, HttpRange range) {
+        GetObjectRequest getObjectRequest = GetObjectRequest
+                .builder()
+                .bucket(bucketName)
+                .key(key)
+                .range(range == null ? null : HttpRange.toString(List.of(range)))
+                .build();
+        try {
+            return s3.getObject(getObjectRequest);
+        } catch (S3Exception e) {
+            if (e.statusCode() == HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value()) {
+                throw new RangeNotSatisfiableException(
+                        "range [%s] of s3 object [%s] is not satisfiable".formatted(range, key), null);
+            }
+            throw e;
+        }
+    }
 }
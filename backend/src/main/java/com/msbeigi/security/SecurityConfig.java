@@ -1,5 +1,8 @@
 package com.msbeigi.security;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -10,15 +13,29 @@ import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
+import java.time.Duration;
+
 @Configuration
 public class SecurityConfig {
 
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public BoundedPasswordEncoder passwordEncoder(
+            MeterRegistry meterRegistry,
+            @Value("${security.password-hashing.pool-size}") int poolSize,
+            @Value("${security.password-hashing.queue-capacity}") int queueCapacity,
+            @Value("${security.password-hashing.retry-after}") Duration retryAfter
+    ) {
+        return new BoundedPasswordEncoder(
+                new BCryptPasswordEncoder(),
+                poolSize,
+                queueCapacity,
+                retryAfter,
+                meterRegistry
+        );
     }
 
     @Bean
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
     public AuthenticationManager authenticationManager(
             AuthenticationConfiguration configuration
     ) throws Exception {
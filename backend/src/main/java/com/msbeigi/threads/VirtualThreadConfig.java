@@ -0,0 +1,28 @@
+package com.msbeigi.threads;
+
+import org.apache.coyote.ProtocolHandler;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.scheduling.concurrent.ConcurrentTaskExecutor;
+
+// requests, and the jdbc and s3 calls they make, run on a virtual thread each instead of tomcat's pool.
+// the cpu bound pools (password hashing, image variants) stay bounded platform pools on purpose.
+@Configuration
+@ConditionalOnProperty(name = "threads.virtual.enabled", havingValue = "true")
+public class VirtualThreadConfig {
+
+    @Bean(name = TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME)
+    public AsyncTaskExecutor applicationTaskExecutor() {
+        return new ConcurrentTaskExecutor(VirtualThreads.newThreadPerTaskExecutor("virtual-task-"));
+    }
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<ProtocolHandler> virtualThreadRequests() {
+        return protocolHandler -> protocolHandler.setExecutor(
+                VirtualThreads.newThreadPerTaskExecutor("virtual-http-"));
+    }
+}
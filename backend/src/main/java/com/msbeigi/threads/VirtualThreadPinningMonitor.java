@@ -0,0 +1,68 @@
+package com.msbeigi.threads;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+
+// a virtual thread blocking inside synchronized (or native code) holds on to its carrier thread.
+// jfr reports every such section, they are counted per frame of our own code that entered it.
+@Component
+@ConditionalOnProperty(name = "threads.virtual.enabled", havingValue = "true")
+public class VirtualThreadPinningMonitor implements DisposableBean {
+
+    static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    private static final String APPLICATION_PACKAGE = "com.msbeigi.";
+
+    private final MeterRegistry meterRegistry;
+    private final RecordingStream recording;
+
+    public VirtualThreadPinningMonitor(MeterRegistry meterRegistry,
+                                       @Value("${threads.virtual.pinned-threshold}") Duration threshold) {
+        this.meterRegistry = meterRegistry;
+        this.recording = new RecordingStream();
+        recording.enable(PINNED_EVENT).withThreshold(threshold).withStackTrace();
+        recording.onEvent(PINNED_EVENT, this::record);
+        recording.startAsync();
+    }
+
+    @Override
+    public void destroy() {
+        recording.close();
+    }
+
+    private void record(RecordedEvent event) {
+        RecordedStackTrace stackTrace = event.getStackTrace();
+        Timer.builder("threads.virtual.pinned")
+                .tag("frame", frame(stackTrace == null ? List.of() : stackTrace.getFrames()))
+                .register(meterRegistry)
+                .record(event.getDuration());
+    }
+
+    // the first application frame is the section to fix, library frames above it are only the symptom
+    private static String frame(List<RecordedFrame> frames) {
+        String top = "unknown";
+        for (RecordedFrame frame : frames) {
+            if (!frame.isJavaFrame()) {
+                continue;
+            }
+            String name = frame.getMethod().getType().getName() + "." + frame.getMethod().getName();
+            if (name.startsWith(APPLICATION_PACKAGE)) {
+                return name;
+            }
+            if (top.equals("unknown")) {
+                top = name;
+            }
+        }
+        return top;
+    }
+}
@@ -0,0 +1,3 @@
+-- JPA and CustomerIdAllocator reserve blocks of 50 ids per nextval (pooled-lo),
+-- keep in sync with Customer.ID_ALLOCATION_SIZE
+ALTER SEQUENCE customer_id_seq INCREMENT BY 50;
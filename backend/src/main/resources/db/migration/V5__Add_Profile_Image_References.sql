@@ -0,0 +1,13 @@
+-- profile images are stored once per content digest, so customers may share one
+ALTER TABLE customer
+    DROP CONSTRAINT profile_image_id_unique;
+
+ALTER TABLE customer
+    ALTER COLUMN profile_image_id TYPE VARCHAR(64);
+
+-- a row exists only once images/sha256/<digest> is stored in s3
+CREATE TABLE profile_image
+(
+    digest          VARCHAR(64) PRIMARY KEY,
+    reference_count INT NOT NULL
+);
@@ -0,0 +1,9 @@
+-- when the last reference went away, the sweeper deletes the image once it stayed unused long enough
+ALTER TABLE profile_image
+    ADD COLUMN released_at TIMESTAMP;
+
+UPDATE profile_image
+SET released_at = now()
+WHERE reference_count = 0;
+
+CREATE INDEX profile_image_released_at_idx ON profile_image (released_at) WHERE reference_count = 0;
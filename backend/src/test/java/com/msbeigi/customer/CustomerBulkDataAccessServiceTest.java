@@ -0,0 +1,57 @@
+package com.msbeigi.customer;
+
+import com.msbeigi.AbstractTestContainers;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CustomerBulkDataAccessServiceTest extends AbstractTestContainers {
+
+    private CustomerBulkDataAccessService underTest;
+    private CustomerJDBCDataAccessService customerDao;
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void setUp() {
+        JdbcTemplate jdbcTemplate = getJdbcTemplate();
+        CustomerIdAllocator customerIdAllocator = new CustomerIdAllocator(jdbcTemplate);
+        underTest = new CustomerBulkDataAccessService(jdbcTemplate, customerIdAllocator);
+        customerDao = new CustomerJDBCDataAccessService(
+                jdbcTemplate, new CustomerRowMapper(), customerIdAllocator);
+        // the temp table lives until commit, so the copy needs a transaction like it gets from its proxy
+        transactionTemplate = new TransactionTemplate(
+                new DataSourceTransactionManager(jdbcTemplate.getDataSource()));
+    }
+
+    @Test
+    void copyCustomersSkipsTakenEmails() {
+        // Given
+        String taken = FAKER.internet().emailAddress() + "-" + UUID.randomUUID();
+        customerDao.insertCustomer(new Customer("Taken", taken, "password", 30, Gender.MALE));
+        String fresh = FAKER.internet().emailAddress() + "-" + UUID.randomUUID();
+        List<Customer> customers = List.of(
+                new Customer("Fresh \"quoted\", name", fresh, "password", 20, Gender.FEMALE),
+                new Customer("Taken again", taken, "password", 40, Gender.MALE),
+                new Customer("Fresh twice", fresh, "password", 50, Gender.MALE)
+        );
+
+        // When
+        Set<String> actual = transactionTemplate.execute(status -> underTest.copyCustomers(customers));
+
+        // Then
+        assertThat(actual).containsExactly(fresh);
+        assertThat(customerDao.selectUserByEmail(fresh))
+                .hasValueSatisfying(customer -> {
+                    assertThat(customer.getName()).isEqualTo("Fresh \"quoted\", name");
+                    assertThat(customer.getAge()).isEqualTo(20);
+                });
+    }
+}
@@ -0,0 +1,157 @@
+package com.msbeigi.customer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.msbeigi.security.BoundedPasswordEncoder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CustomerBulkImportServiceTest {
+
+    @Mock
+    private CustomerBulkDataAccessService customerBulkDao;
+    @Mock
+    private BoundedPasswordEncoder passwordEncoder;
+    @Mock
+    private EmailBloomFilter emailBloomFilter;
+
+    private CustomerBulkImportService underTest;
+
+    @BeforeEach
+    void setUp() {
+        underTest = new CustomerBulkImportService(
+                customerBulkDao,
+                passwordEncoder,
+                emailBloomFilter,
+                new ObjectMapper(),
+                2,
+                10
+        );
+    }
+
+    @Test
+    void canImportCsvInChunks() {
+        // Given
+        String csv = """
+                name,email,password,age,gender
+                Alex,alex@gmail.com,password,21,MALE
+                Jamila,jamila@gmail.com,password,33,female
+                Ali,ali@gmail.com,password,40,MALE
+                """;
+        when(passwordEncoder.encodeAll(anyList()))
+                .thenAnswer(invocation -> ((List<?>) invocation.getArgument(0)).stream()
+                        .map(password -> "hashed")
+                        .toList());
+        when(customerBulkDao.copyCustomers(anyList()))
+                .thenAnswer(invocation -> emailsOf(invocation.getArgument(0)));
+
+        // When
+        BulkImportResult actual = underTest.importCsv(stream(csv));
+
+        // Then
+        assertThat(actual).isEqualTo(new BulkImportResult(3, 3, 0, List.of()));
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Customer>> chunks = ArgumentCaptor.forClass(List.class);
+        verify(customerBulkDao, times(2)).copyCustomers(chunks.capture());
+        assertThat(chunks.getAllValues().get(0))
+                .extracting(Customer::getEmail, Customer::getPassword, Customer::getGender)
+                .containsExactly(
+                        tuple("alex@gmail.com", "hashed", Gender.MALE),
+                        tuple("jamila@gmail.com", "hashed", Gender.FEMALE));
+        verify(emailBloomFilter).put("ali@gmail.com");
+    }
+
+    @Test
+    void reportsInvalidRowsWithoutAbortingImport() {
+        // Given
+        String csv = """
+                name,email,password,age,gender
+                Alex,alex@gmail.com,password,21,OTHER
+                Jamila,,password,33,FEMALE
+                Ali,ali@gmail.com,password,old,MALE
+                Sara,sara@gmail.com,password,25,FEMALE
+                """;
+        when(passwordEncoder.encodeAll(List.of("password"))).thenReturn(List.of("hashed"));
+        when(customerBulkDao.copyCustomers(anyList())).thenReturn(new HashSet<>(Set.of("sara@gmail.com")));
+
+        // When
+        BulkImportResult actual = underTest.importCsv(stream(csv));
+
+        // Then
+        assertThat(actual.received()).isEqualTo(4);
+        assertThat(actual.imported()).isEqualTo(1);
+        assertThat(actual.rejections()).containsExactly(
+                new BulkImportRejection(1, "alex@gmail.com", "invalid gender [OTHER]"),
+                new BulkImportRejection(2, null, "missing email"),
+                new BulkImportRejection(3, "ali@gmail.com", "invalid age [old]")
+        );
+    }
+
+    @Test
+    void rejectsEmailsTakenInDatabaseOrEarlierInUpload() {
+        // Given
+        String ndjson = """
+                {"name":"Alex","email":"alex@gmail.com","password":"password","age":21,"gender":"MALE"}
+                {"name":"Alex","email":"alex@gmail.com","password":"password","age":22,"gender":"MALE"}
+                """;
+        when(passwordEncoder.encodeAll(anyList())).thenReturn(List.of("hashed", "hashed"));
+        when(customerBulkDao.copyCustomers(anyList())).thenReturn(new HashSet<>(Set.of("alex@gmail.com")));
+
+        // When
+        BulkImportResult actual = underTest.importNdjson(stream(ndjson));
+
+        // Then
+        assertThat(actual.imported()).isEqualTo(1);
+        assertThat(actual.rejections()).containsExactly(
+                new BulkImportRejection(2, "alex@gmail.com", "email already taken"));
+        verify(emailBloomFilter, times(1)).put("alex@gmail.com");
+    }
+
+    @Test
+    void skipsMalformedJsonLines() {
+        // Given
+        String ndjson = """
+                {"name":"Alex",
+                
+                [1, 2]
+                """;
+
+        // When
+        BulkImportResult actual = underTest.importNdjson(stream(ndjson));
+
+        // Then
+        assertThat(actual).isEqualTo(new BulkImportResult(2, 0, 2, List.of(
+                new BulkImportRejection(1, null, "malformed json"),
+                new BulkImportRejection(3, null, "malformed json")
+        )));
+        verifyNoInteractions(customerBulkDao, passwordEncoder);
+    }
+
+    private static Set<String> emailsOf(List<Customer> customers) {
+        Set<String> emails = new HashSet<>();
+        customers.forEach(customer -> emails.add(customer.getEmail()));
+        return emails;
+    }
+
+    private static InputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
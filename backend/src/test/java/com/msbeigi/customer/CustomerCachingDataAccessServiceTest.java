@@ -0,0 +1,241 @@
+package com.msbeigi.customer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CustomerCachingDataAccessServiceTest {
+
+    @Mock
+    private CustomerDao delegate;
+
+    private CustomerCachingDataAccessService underTest;
+
+    @BeforeEach
+    void setUp() {
+        underTest = new CustomerCachingDataAccessService(
+                delegate, new SimpleMeterRegistry(), 100, Duration.ofMinutes(10));
+    }
+
+    @Test
+    void canSelectCustomerByIdFromCache() {
+        // Given
+        var customer = new Customer(1, "Alex", "alex@gmail.com", "password", 22, Gender.MALE);
+        when(delegate.selectCustomerById(1)).thenReturn(Optional.of(customer));
+
+        // When
+        underTest.selectCustomerById(1);
+        Optional<Customer> actual = underTest.selectCustomerById(1);
+
+        // Then
+        assertThat(actual).contains(customer);
+        verify(delegate, times(1)).selectCustomerById(1);
+    }
+
+    @Test
+    void willNotShareCachedCustomerWithCallers() {
+        // Given
+        var customer = new Customer(1, "Alex", "alex@gmail.com", "password", 22, Gender.MALE);
+        when(delegate.selectCustomerById(1)).thenReturn(Optional.of(customer));
+        underTest.selectCustomerById(1).orElseThrow().setName("changed");
+
+        // When
+        Optional<Customer> actual = underTest.selectCustomerById(1);
+
+        // Then
+        assertThat(actual).hasValueSatisfying(c -> assertThat(c.getName()).isEqualTo("Alex"));
+    }
+
+    @Test
+    void canSelectUserByEmailFromCache() {
+        // Given
+        var customer = new Customer(1, "Alex", "alex@gmail.com", "password", 22, Gender.MALE);
+        when(delegate.selectUserByEmail("alex@gmail.com")).thenReturn(Optional.of(customer));
+        underTest.selectUserByEmail("alex@gmail.com");
+
+        // When
+        Optional<Customer> byEmail = underTest.selectUserByEmail("alex@gmail.com");
+        Optional<Customer> byId = underTest.selectCustomerById(1);
+        boolean exists = underTest.existCustomerWithEmail("alex@gmail.com");
+
+        // Then
+        assertThat(byEmail).contains(customer);
+        assertThat(byId).contains(customer);
+        assertThat(exists).isTrue();
+        verify(delegate, times(1)).selectUserByEmail("alex@gmail.com");
+        verifyNoMoreInteractions(delegate);
+    }
+
+    @Test
+    void willInvalidateOnUpdate() {
+        // Given
+        var customer = new Customer(1, "Alex", "alex@gmail.com", "password", 22, Gender.MALE);
+        var updated = new Customer(1, "Alex", "new@gmail.com", "password", 22, Gender.MALE);
+        when(delegate.selectCustomerById(1)).thenReturn(Optional.of(customer), Optional.of(updated));
+        underTest.selectCustomerById(1);
+
+        // When
+        underTest.updateCustomer(updated);
+
+        // Then
+        assertThat(underTest.selectCustomerById(1)).contains(updated);
+        verify(delegate).updateCustomer(updated);
+        verify(delegate, times(2)).selectCustomerById(1);
+    }
+
+    @Test
+    void willInvalidateOnBatchUpdate() {
+        // Given
+        var customer = new Customer(1, "Alex", "alex@gmail.com", "password", 22, Gender.MALE);
+        var updated = new Customer(1, "Alexander", "alex@gmail.com", "password", 22, Gender.MALE);
+        when(delegate.selectCustomerById(1)).thenReturn(Optional.of(customer), Optional.of(updated));
+        when(delegate.updateCustomers(List.of(updated))).thenReturn(new int[]{1});
+        underTest.selectCustomerById(1);
+
+        // When
+        int[] actual = underTest.updateCustomers(List.of(updated));
+
+        // Then
+        assertThat(actual).containsExactly(1);
+        assertThat(underTest.selectCustomerById(1)).contains(updated);
+        verify(delegate, times(2)).selectCustomerById(1);
+    }
+
+    @Test
+    void willMissByOldEmailAfterEmailChanged() {
+        // Given
+        var customer = new Customer(1, "Alex", "alex@gmail.com", "password", 22, Gender.MALE);
+        var updated = new Customer(1, "Alex", "new@gmail.com", "password", 22, Gender.MALE);
+        when(delegate.selectUserByEmail("alex@gmail.com")).thenReturn(Optional.of(customer), Optional.empty());
+        when(delegate.selectCustomerById(1)).thenReturn(Optional.of(updated));
+        underTest.selectUserByEmail("alex@gmail.com");
+        underTest.updateCustomer(updated);
+        underTest.selectCustomerById(1);
+
+        // When
+        Optional<Customer> actual = underTest.selectUserByEmail("alex@gmail.com");
+
+        // Then
+        assertThat(actual).isEmpty();
+        verify(delegate, times(2)).selectUserByEmail("alex@gmail.com");
+    }
+
+    @Test
+    void willInvalidateOnDelete() {
+        // Given
+        var customer = new Customer(1, "Alex", "alex@gmail.com", "password", 22, Gender.MALE);
+        when(delegate.selectCustomerById(1)).thenReturn(Optional.of(customer), Optional.empty());
+        underTest.selectCustomerById(1);
+
+        // When
+        underTest.deleteCustomerById(1);
+
+        // Then
+        assertThat(underTest.selectCustomerById(1)).isEmpty();
+        verify(delegate).deleteCustomerById(1);
+    }
+
+    @Test
+    void willInvalidateOnProfileImageUpdate() {
+        // Given
+        var customer = new Customer(1, "Alex", "alex@gmail.com", 22, Gender.MALE, "password", null);
+        var updated = new Customer(1, "Alex", "alex@gmail.com", 22, Gender.MALE, "password", "22222");
+        when(delegate.selectCustomerById(1)).thenReturn(Optional.of(customer), Optional.of(updated));
+        underTest.selectCustomerById(1);
+
+        // When
+        underTest.updateCustomerProfileImageId("22222", 1);
+
+        // Then
+        assertThat(underTest.selectCustomerById(1))
+                .hasValueSatisfying(c -> assertThat(c.getProfileImageId()).isEqualTo("22222"));
+        verify(delegate).updateCustomerProfileImageId("22222", 1);
+    }
+
+    @Test
+    void willNotCacheRowLoadedConcurrentlyWithUpdate() throws Exception {
+        // Given
+        var customer = new Customer(1, "Alex", "alex@gmail.com", "password", 22, Gender.MALE);
+        var updated = new Customer(1, "Alexander", "alex@gmail.com", "password", 22, Gender.MALE);
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(delegate.selectCustomerById(1)).thenAnswer(invocation -> {
+            loading.countDown();
+            release.await();
+            return Optional.of(customer);
+        }).thenReturn(Optional.of(updated));
+
+        // When
+        CompletableFuture<Optional<Customer>> reader =
+                CompletableFuture.supplyAsync(() -> underTest.selectCustomerById(1));
+        assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+        Thread writer = new Thread(() -> underTest.updateCustomer(updated));
+        writer.start();
+        // the update committed while the old row was still being read
+        writer.join(200);
+        release.countDown();
+        reader.get(5, TimeUnit.SECONDS);
+        writer.join();
+
+        // Then
+        assertThat(underTest.selectCustomerById(1)).contains(updated);
+        verify(delegate, times(2)).selectCustomerById(1);
+    }
+
+    @Test
+    void willInvalidateAgainAfterCommitOfUpdate() {
+        // Given
+        var customer = new Customer(1, "Alex", "alex@gmail.com", "password", 22, Gender.MALE);
+        var updated = new Customer(1, "Alexander", "alex@gmail.com", "password", 22, Gender.MALE);
+        when(delegate.selectCustomerById(1)).thenReturn(Optional.of(customer), Optional.of(updated));
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            underTest.updateCustomer(updated);
+            // a concurrent reader still sees the uncommitted row
+            underTest.selectCustomerById(1);
+
+            // When
+            TransactionSynchronizationUtils.triggerAfterCommit();
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        // Then
+        assertThat(underTest.selectCustomerById(1)).contains(updated);
+    }
+
+    @Test
+    void willNotCacheRowReadByEmailBeforeUpdate() {
+        // Given
+        var customer = new Customer(1, "Alex", "alex@gmail.com", "password", 22, Gender.MALE);
+        var updated = new Customer(1, "Alexander", "alex@gmail.com", "password", 22, Gender.MALE);
+        when(delegate.selectUserByEmail("alex@gmail.com")).thenAnswer(invocation -> {
+            // the update commits while the old row is on its way back
+            underTest.updateCustomer(updated);
+            return Optional.of(customer);
+        });
+        when(delegate.selectCustomerById(1)).thenReturn(Optional.of(updated));
+
+        // When
+        underTest.selectUserByEmail("alex@gmail.com");
+
+        // Then
+        assertThat(underTest.selectCustomerById(1)).contains(updated);
+    }
+}
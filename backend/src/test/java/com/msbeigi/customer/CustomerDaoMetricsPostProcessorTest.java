@@ -0,0 +1,86 @@
+package com.msbeigi.customer;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.dao.OptimisticLockingFailureException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CustomerDaoMetricsPostProcessorTest {
+
+    private MeterRegistry meterRegistry;
+    private CustomerDaoMetricsPostProcessor underTest;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        var beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerSingleton("meterRegistry", meterRegistry);
+        underTest = new CustomerDaoMetricsPostProcessor(beanFactory.getBeanProvider(MeterRegistry.class));
+    }
+
+    @Test
+    void timesDaoCallsByDaoMethodAndOutcome() {
+        // Given
+        var customerDao = (CustomerDao) underTest.postProcessAfterInitialization(
+                new CustomerListDataAccessService(), "list");
+        var stale = new Customer();
+        stale.setId(1);
+        stale.setName("stale");
+        stale.setVersion(7);
+
+        // When
+        customerDao.selectCustomerById(1);
+        customerDao.selectCustomerById(2);
+        assertThatThrownBy(() -> customerDao.updateCustomer(stale))
+                .isInstanceOf(OptimisticLockingFailureException.class);
+
+        // Then
+        assertThat(customerDao).isInstanceOf(CustomerListDataAccessService.class);
+        assertThat(timer("list", "selectCustomerById", "success").count()).isEqualTo(2);
+        assertThat(timer("list", "updateCustomer", "error").count()).isEqualTo(1);
+        assertThat(meterRegistry.find("customer.dao").tag("method", "toString").timer()).isNull();
+    }
+
+    @Test
+    void addsTimingToExistingProxy() {
+        // Given
+        var proxyFactory = new ProxyFactory(new CustomerListDataAccessService());
+        proxyFactory.setProxyTargetClass(true);
+        Object proxy = proxyFactory.getProxy();
+
+        // When
+        Object actual = underTest.postProcessAfterInitialization(proxy, "jpa");
+        ((CustomerDao) actual).existCustomerWithEmail("alex@gmail.com");
+
+        // Then
+        assertThat(actual).isSameAs(proxy);
+        assertThat(timer("jpa", "existCustomerWithEmail", "success").count()).isEqualTo(1);
+    }
+
+    @Test
+    void leavesOtherBeansAlone() {
+        // Given
+        var bean = new Object();
+
+        // When
+        Object actual = underTest.postProcessAfterInitialization(bean, "other");
+
+        // Then
+        assertThat(actual).isSameAs(bean);
+    }
+
+    private Timer timer(String dao, String method, String outcome) {
+        return meterRegistry.get("customer.dao")
+                .tag("dao", dao)
+                .tag("method", method)
+                .tag("outcome", outcome)
+                .timer();
+    }
+}
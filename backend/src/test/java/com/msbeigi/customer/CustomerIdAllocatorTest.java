@@ -0,0 +1,47 @@
+package com.msbeigi.customer;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CustomerIdAllocatorTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private CustomerIdAllocator underTest;
+
+    @BeforeEach
+    void setUp() {
+        underTest = new CustomerIdAllocator(jdbcTemplate);
+    }
+
+    @Test
+    void canHandOutBlockPerNextval() {
+        // Given
+        when(jdbcTemplate.queryForObject("select nextval('customer_id_seq')", Long.class))
+                .thenReturn(1L, 151L);
+
+        // When
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < Customer.ID_ALLOCATION_SIZE + 1; i++) {
+            ids.add(underTest.nextId());
+        }
+
+        // Then
+        assertThat(ids.get(0)).isEqualTo(1);
+        assertThat(ids.get(Customer.ID_ALLOCATION_SIZE - 1)).isEqualTo(Customer.ID_ALLOCATION_SIZE);
+        assertThat(ids.get(Customer.ID_ALLOCATION_SIZE)).isEqualTo(151);
+        verify(jdbcTemplate, times(2)).queryForObject("select nextval('customer_id_seq')", Long.class);
+    }
+}
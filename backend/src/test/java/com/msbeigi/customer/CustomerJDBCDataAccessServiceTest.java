@@ -3,12 +3,16 @@ package com.msbeigi.customer;
 import com.msbeigi.AbstractTestContainers;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 class CustomerJDBCDataAccessServiceTest extends AbstractTestContainers {
 
@@ -17,9 +21,11 @@ class CustomerJDBCDataAccessServiceTest extends AbstractTestContainers {
 
     @BeforeEach
     void setUp() {
+        JdbcTemplate jdbcTemplate = getJdbcTemplate();
         underTest = new CustomerJDBCDataAccessService(
-                getJdbcTemplate(),
-                customerRowMapper
+                jdbcTemplate,
+                customerRowMapper,
+                new CustomerIdAllocator(jdbcTemplate)
         );
     }
 
@@ -40,6 +46,68 @@ class CustomerJDBCDataAccessServiceTest extends AbstractTestContainers {
         assertThat(customers).isNotEmpty();
     }
 
+    @Test
+    void selectCustomersAfterId() {
+        // Given
+        for (int i = 0; i < 3; i++) {
+            underTest.insertCustomer(new Customer(
+                    FAKER.name().fullName(),
+                    FAKER.internet().emailAddress() + "-" + UUID.randomUUID(),
+                    "password", 39,
+                    Gender.MALE));
+        }
+        List<Customer> firstPage = underTest.selectCustomersAfterId(0, 2);
+        Integer lastId = firstPage.get(firstPage.size() - 1).getId();
+
+        // When
+        List<Customer> actual = underTest.selectCustomersAfterId(lastId, 2);
+
+        // Then
+        assertThat(firstPage).hasSize(2);
+        assertThat(actual).isNotEmpty()
+                .allSatisfy(c -> assertThat(c.getId()).isGreaterThan(lastId));
+        assertThat(actual).extracting(Customer::getId).isSorted();
+    }
+
+    @Test
+    void streamAllCustomers() {
+        // Given
+        String email = FAKER.internet().emailAddress() + "-" + UUID.randomUUID();
+        var customer = new Customer(
+                FAKER.name().fullName(),
+                email,
+                "password", 39,
+                Gender.MALE);
+        underTest.insertCustomer(customer);
+
+        List<Customer> streamed = new ArrayList<>();
+
+        // When
+        underTest.streamAllCustomers(1, streamed::add);
+
+        // Then
+        assertThat(streamed).extracting(Customer::getEmail).contains(email);
+        assertThat(streamed).extracting(Customer::getId).isSorted();
+    }
+
+    @Test
+    void streamAllEmails() {
+        // Given
+        String email = FAKER.internet().emailAddress() + "-" + UUID.randomUUID();
+        underTest.insertCustomer(new Customer(
+                FAKER.name().fullName(),
+                email,
+                "password", 39,
+                Gender.MALE));
+        List<String> emails = new ArrayList<>();
+
+        // When
+        underTest.streamAllEmails(1, emails::add);
+
+        // Then
+        assertThat(emails).contains(email);
+    }
+
     @Test
     void selectCustomerById() {
         // Given
@@ -177,6 +245,51 @@ class CustomerJDBCDataAccessServiceTest extends AbstractTestContainers {
         assertThat(actual).isFalse();
     }
 
+    @Test
+    void insertCustomers() {
+        // Given
+        String first = FAKER.internet().emailAddress() + "-" + UUID.randomUUID();
+        String second = FAKER.internet().emailAddress() + "-" + UUID.randomUUID();
+        List<Customer> customers = List.of(
+                new Customer(FAKER.name().fullName(), first, "password", 20, Gender.MALE),
+                new Customer(FAKER.name().fullName(), second, "password", 30, Gender.FEMALE)
+        );
+
+        // When
+        int[] actual = underTest.insertCustomers(customers);
+
+        // Then
+        assertThat(actual).containsExactly(1, 1);
+        assertThat(underTest.existCustomerWithEmail(first)).isTrue();
+        assertThat(underTest.existCustomerWithEmail(second)).isTrue();
+    }
+
+    @Test
+    void updateCustomersKeepsNullFields() {
+        // Given
+        String email = FAKER.internet().emailAddress() + "-" + UUID.randomUUID();
+        underTest.insertCustomer(new Customer("name", email, "password", 20, Gender.MALE));
+        int id = underTest.selectUserByEmail(email).orElseThrow().getId();
+
+        Customer update = new Customer();
+        update.setId(id);
+        update.setAge(42);
+        Customer missing = new Customer();
+        missing.setId(-1);
+        missing.setName("nobody");
+
+        // When
+        int[] actual = underTest.updateCustomers(List.of(update, missing));
+
+        // Then
+        assertThat(actual).containsExactly(1, 0);
+        assertThat(underTest.selectCustomerById(id)).hasValueSatisfying(c -> {
+            assertThat(c.getName()).isEqualTo("name");
+            assertThat(c.getAge()).isEqualTo(42);
+            assertThat(c.getEmail()).isEqualTo(email);
+        });
+    }
+
     @Test
     void updateCustomerName() {
         // Given
@@ -339,6 +452,53 @@ class CustomerJDBCDataAccessServiceTest extends AbstractTestContainers {
         });
     }
 
+    @Test
+    void updateCustomerBumpsVersion() {
+        // Given
+        String email = FAKER.internet().emailAddress() + "-" + UUID.randomUUID();
+        underTest.insertCustomer(new Customer("name", email, "password", 20, Gender.MALE));
+        Customer customer = underTest.selectUserByEmail(email).orElseThrow();
+
+        Customer update = new Customer();
+        update.setId(customer.getId());
+        update.setName("foo");
+        update.setVersion(customer.getVersion());
+
+        // When
+        underTest.updateCustomer(update);
+
+        // Then
+        assertThat(update.getVersion()).isEqualTo(customer.getVersion() + 1);
+        assertThat(underTest.selectCustomerById(customer.getId()))
+                .hasValueSatisfying(c -> assertThat(c.getVersion()).isEqualTo(update.getVersion()));
+    }
+
+    @Test
+    void willThrowWhenUpdatingStaleCustomer() {
+        // Given
+        String email = FAKER.internet().emailAddress() + "-" + UUID.randomUUID();
+        underTest.insertCustomer(new Customer("name", email, "password", 20, Gender.MALE));
+        Customer customer = underTest.selectUserByEmail(email).orElseThrow();
+
+        Customer first = new Customer();
+        first.setId(customer.getId());
+        first.setName("first");
+        first.setVersion(customer.getVersion());
+        underTest.updateCustomer(first);
+
+        Customer second = new Customer();
+        second.setId(customer.getId());
+        second.setName("second");
+        second.setVersion(customer.getVersion());
+
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.updateCustomer(second))
+                .isInstanceOf(OptimisticLockingFailureException.class);
+        assertThat(underTest.selectCustomerById(customer.getId()))
+                .hasValueSatisfying(c -> assertThat(c.getName()).isEqualTo("first"));
+    }
+
     @Test
     void willNotUpdateCustomerWhenNothingToUpdate() {
         // Given
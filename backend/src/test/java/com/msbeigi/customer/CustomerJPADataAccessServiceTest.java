@@ -6,12 +6,17 @@ import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.Mockito.*;
 
 class CustomerJPADataAccessServiceTest {
@@ -48,6 +53,34 @@ class CustomerJPADataAccessServiceTest {
         assertThat(pageableArgumentCaptor.getValue()).isEqualTo(Pageable.ofSize(1000));
     }
 
+    @Test
+    void selectCustomersAfterId() {
+        // Given
+        int id = 10;
+        int limit = 20;
+
+        // When
+        underTest.selectCustomersAfterId(id, limit);
+
+        // Then
+        verify(customerRepository)
+                .findByIdGreaterThanOrderByIdAsc(id, Pageable.ofSize(limit));
+    }
+
+    @Test
+    void streamAllEmails() {
+        // Given
+        when(customerRepository.streamAllEmails())
+                .thenReturn(Stream.of("alex@gmail.com", "jamila@gmail.com"));
+        List<String> emails = new ArrayList<>();
+
+        // When
+        underTest.streamAllEmails(100, emails::add);
+
+        // Then
+        assertThat(emails).containsExactly("alex@gmail.com", "jamila@gmail.com");
+    }
+
     @Test
     void selectCustomerById() {
         // Given
@@ -73,6 +106,22 @@ class CustomerJPADataAccessServiceTest {
         verify(customerRepository).save(customer);
     }
 
+    @Test
+    void insertCustomers() {
+        // Given
+        List<Customer> customers = List.of(
+                new Customer("Ali", "ali@gmail.com", "password", 2, Gender.MALE),
+                new Customer("Sara", "sara@gmail.com", "password", 3, Gender.FEMALE)
+        );
+
+        // When
+        int[] actual = underTest.insertCustomers(customers);
+
+        // Then
+        assertThat(actual).containsExactly(1, 1);
+        verify(customerRepository).saveAll(customers);
+    }
+
     @Test
     void existPersonWithEmail() {
         // Given
@@ -113,13 +162,57 @@ class CustomerJPADataAccessServiceTest {
     @Test
     void updateCustomer() {
         // Given
-        var customer = new Customer(1, "updated", "updated@gmail.com", "password", 33, Gender.MALE);
+        var customer = new Customer(1, "Alex", "alex@gmail.com", "password", 22, Gender.MALE);
+        customer.setVersion(0);
+        when(customerRepository.findById(1)).thenReturn(Optional.of(customer));
+
+        var update = new Customer();
+        update.setId(1);
+        update.setName("updated");
+        update.setVersion(0);
 
         // When
-        underTest.updateCustomer(customer);
+        underTest.updateCustomer(update);
 
         // Then
-        verify(customerRepository).save(customer);
+        assertThat(customer.getName()).isEqualTo("updated");
+        assertThat(customer.getEmail()).isEqualTo("alex@gmail.com");
+        assertThat(customer.getAge()).isEqualTo(22);
+    }
+
+    @Test
+    void updateCustomerWillThrowWhenVersionIsStale() {
+        // Given
+        var customer = new Customer(1, "Alex", "alex@gmail.com", "password", 22, Gender.MALE);
+        customer.setVersion(2);
+        when(customerRepository.findById(1)).thenReturn(Optional.of(customer));
+
+        var update = new Customer();
+        update.setId(1);
+        update.setName("updated");
+        update.setVersion(1);
+
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.updateCustomer(update))
+                .isInstanceOf(OptimisticLockingFailureException.class);
+        assertThat(customer.getName()).isEqualTo("Alex");
+    }
+
+    @Test
+    void updateCustomersSkipsMissingIds() {
+        // Given
+        var existing = new Customer(1, "Alex", "alex@gmail.com", "password", 22, Gender.MALE);
+        var update = new Customer(1, "updated", "updated@gmail.com", "password", 33, Gender.MALE);
+        var missing = new Customer(2, "missing", "missing@gmail.com", "password", 33, Gender.MALE);
+        when(customerRepository.findAllById(List.of(1, 2))).thenReturn(List.of(existing));
+
+        // When
+        int[] actual = underTest.updateCustomers(List.of(update, missing));
+
+        // Then
+        assertThat(actual).containsExactly(1, 0);
+        assertThat(existing.getName()).isEqualTo("updated");
     }
 
     @Test
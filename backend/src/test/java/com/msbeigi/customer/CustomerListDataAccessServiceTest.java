@@ -0,0 +1,220 @@
+package com.msbeigi.customer;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CustomerListDataAccessServiceTest {
+
+    private CustomerListDataAccessService underTest;
+
+    @BeforeEach
+    void setUp() {
+        underTest = new CustomerListDataAccessService();
+    }
+
+    @Test
+    void insertCustomerAssignsIdAfterSeededCustomers() {
+        // Given
+        var customer = new Customer("Ali", "ali@gmail.com", "password", 30, Gender.MALE);
+
+        // When
+        underTest.insertCustomer(customer);
+
+        // Then
+        assertThat(customer.getId()).isEqualTo(3);
+        assertThat(customer.getVersion()).isZero();
+        assertThat(underTest.selectUserByEmail("ali@gmail.com"))
+                .hasValueSatisfying(c -> assertThat(c.getId()).isEqualTo(3));
+    }
+
+    @Test
+    void willThrowWhenInsertingTakenEmail() {
+        // Given
+        var customer = new Customer("Alex", "alex@gmail.com", "password", 30, Gender.MALE);
+
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.insertCustomer(customer))
+                .isInstanceOf(DuplicateKeyException.class);
+        assertThat(underTest.selectAllCustomers()).hasSize(2);
+    }
+
+    @Test
+    void updateCustomerReplacesRowAndEmailIndex() {
+        // Given
+        var update = new Customer();
+        update.setId(1);
+        update.setEmail("alex.new@gmail.com");
+        update.setVersion(0);
+
+        // When
+        underTest.updateCustomer(update);
+
+        // Then
+        assertThat(update.getVersion()).isEqualTo(1);
+        assertThat(underTest.selectAllCustomers()).hasSize(2);
+        assertThat(underTest.existCustomerWithEmail("alex@gmail.com")).isFalse();
+        assertThat(underTest.selectUserByEmail("alex.new@gmail.com"))
+                .hasValueSatisfying(c -> {
+                    assertThat(c.getId()).isEqualTo(1);
+                    assertThat(c.getName()).isEqualTo("Alex");
+                    assertThat(c.getVersion()).isEqualTo(1);
+                });
+    }
+
+    @Test
+    void willThrowWhenUpdatingStaleOrMissingCustomer() {
+        // Given
+        var stale = new Customer();
+        stale.setId(1);
+        stale.setName("stale");
+        stale.setVersion(7);
+        var missing = new Customer();
+        missing.setId(42);
+        missing.setName("missing");
+
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.updateCustomer(stale))
+                .isInstanceOf(OptimisticLockingFailureException.class);
+        assertThat(underTest.updateCustomers(List.of(stale, missing))).containsExactly(0, 0);
+        assertThat(underTest.selectCustomerById(1))
+                .hasValueSatisfying(c -> assertThat(c.getName()).isEqualTo("Alex"));
+    }
+
+    @Test
+    void willThrowWhenUpdatingToTakenEmail() {
+        // Given
+        var update = new Customer();
+        update.setId(1);
+        update.setEmail("jamila@gmail.com");
+
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.updateCustomer(update))
+                .isInstanceOf(DuplicateKeyException.class);
+        assertThat(underTest.selectUserByEmail("jamila@gmail.com"))
+                .hasValueSatisfying(c -> assertThat(c.getId()).isEqualTo(2));
+    }
+
+    @Test
+    void willNotShareStoredCustomerWithCallers() {
+        // Given
+        underTest.selectCustomerById(1).orElseThrow().setName("changed");
+
+        // When
+        var actual = underTest.selectCustomerById(1);
+
+        // Then
+        assertThat(actual).hasValueSatisfying(c -> assertThat(c.getName()).isEqualTo("Alex"));
+    }
+
+    @Test
+    void deleteCustomerByIdReleasesEmail() {
+        // When
+        underTest.deleteCustomerById(1);
+
+        // Then
+        assertThat(underTest.existCustomerById(1)).isFalse();
+        assertThat(underTest.existCustomerWithEmail("alex@gmail.com")).isFalse();
+        assertThat(underTest.selectCustomersAfterId(0, 10))
+                .extracting(Customer::getId)
+                .containsExactly(2);
+    }
+
+    @Test
+    void canUpdateProfileImageId() {
+        // When
+        underTest.updateCustomerProfileImageId("2222", 2);
+
+        // Then
+        assertThat(underTest.selectCustomerById(2)).hasValueSatisfying(c -> {
+            assertThat(c.getProfileImageId()).isEqualTo("2222");
+            assertThat(c.getVersion()).isZero();
+        });
+    }
+
+    @Test
+    void concurrentWritersNeitherLoseNorDuplicateRows() throws Exception {
+        // Given
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            // When
+            List<Future<?>> futures = IntStream.range(0, 8)
+                    .<Future<?>>mapToObj(thread -> executor.submit(() -> {
+                        for (int i = 0; i < 500; i++) {
+                            underTest.insertCustomer(new Customer(
+                                    "name", "%s-%s@gmail.com".formatted(thread, i), "password", 20, Gender.MALE));
+                            var update = new Customer();
+                            update.setId(1);
+                            update.setAge(i);
+                            underTest.updateCustomer(update);
+                        }
+                    }))
+                    .toList();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        // Then
+        List<Customer> all = underTest.selectAllCustomers();
+        assertThat(all).hasSize(2 + 8 * 500);
+        assertThat(all).extracting(Customer::getId).doesNotHaveDuplicates().isSorted();
+        assertThat(underTest.selectCustomerById(1))
+                .hasValueSatisfying(c -> assertThat(c.getVersion()).isEqualTo(8 * 500));
+    }
+
+    @Test
+    void concurrentEmailChangesKeepOneRowPerEmail() throws Exception {
+        // Given
+        List<String> emails = List.of("a@gmail.com", "b@gmail.com", "c@gmail.com");
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            // When
+            List<Future<?>> futures = IntStream.range(0, 8)
+                    .<Future<?>>mapToObj(thread -> executor.submit(() -> {
+                        for (int i = 0; i < 500; i++) {
+                            var update = new Customer();
+                            update.setId(1 + (thread + i) % 2);
+                            update.setEmail(emails.get((thread + i) % emails.size()));
+                            try {
+                                underTest.updateCustomer(update);
+                            } catch (DuplicateKeyException e) {
+                                // the other customer holds it right now
+                            }
+                        }
+                    }))
+                    .toList();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        // Then
+        List<Customer> all = underTest.selectAllCustomers();
+        assertThat(all).extracting(Customer::getEmail).doesNotHaveDuplicates();
+        List<String> indexed = new ArrayList<>();
+        underTest.streamAllEmails(0, indexed::add);
+        assertThat(indexed).containsExactlyInAnyOrderElementsOf(all.stream().map(Customer::getEmail).toList());
+        for (Customer customer : all) {
+            assertThat(underTest.selectUserByEmail(customer.getEmail())).contains(customer);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.msbeigi.customer;
+
+import com.msbeigi.exception.ResourceNotFoundException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CustomerRouterTest {
+
+    @Mock
+    private ReactiveCustomerService customerService;
+
+    private WebTestClient webTestClient;
+
+    @BeforeEach
+    void setUp() {
+        webTestClient = WebTestClient
+                .bindToRouterFunction(new CustomerRouter().customerRoutes(new CustomerHandler(customerService)))
+                .build();
+    }
+
+    @Test
+    void canGetCustomerPage() {
+        // Given
+        CustomerDTO customer = new CustomerDTO(
+                1, "Alex", "alex@gmail.com", Gender.MALE, 19, List.of("ROLE_USER"), "alex@gmail.com", null, 0);
+        when(customerService.getCustomerPage("abc", 1))
+                .thenReturn(Mono.just(new CustomerPage(List.of(customer), "next")));
+
+        // When
+        // Then
+        webTestClient.get()
+                .uri("/api/v2/customers?after=abc&limit=1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.customers[0].email").isEqualTo("alex@gmail.com")
+                .jsonPath("$.nextCursor").isEqualTo("next");
+    }
+
+    @Test
+    void mapsResourceNotFoundToApiError() {
+        // Given
+        when(customerService.getCustomerById(10))
+                .thenReturn(Mono.error(new ResourceNotFoundException("Customer with id [10] not found!")));
+
+        // When
+        // Then
+        webTestClient.get()
+                .uri("/api/v2/customers/10")
+                .exchange()
+                .expectStatus().isNotFound()
+                .expectBody()
+                .jsonPath("$.path").isEqualTo("/api/v2/customers/10")
+                .jsonPath("$.statusCode").isEqualTo(404);
+    }
+
+    @Test
+    void profileImageRevalidatesWithETag() {
+        // Given
+        String profileImageId = "2222";
+        when(customerService.getCustomerProfileImageId(10)).thenReturn(Mono.just(profileImageId));
+        when(customerService.getCustomerProfileImage(10, profileImageId, null))
+                .thenReturn(Mono.just(new ProfileImageStream(
+                        Flux.just(ByteBuffer.wrap("image".getBytes())), 5L, null, null)));
+
+        // When
+        // Then
+        webTestClient.get()
+                .uri("/api/v2/customers/10/profile-image?v=" + profileImageId)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(MediaType.IMAGE_JPEG)
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"2222\"")
+                .expectHeader().valueEquals(HttpHeaders.CACHE_CONTROL, "max-age=31536000, public, immutable")
+                .expectBody(String.class).isEqualTo("image");
+
+        webTestClient.get()
+                .uri("/api/v2/customers/10/profile-image")
+                .header(HttpHeaders.IF_NONE_MATCH, "\"2222\"")
+                .exchange()
+                .expectStatus().isNotModified();
+        verify(customerService, times(1)).getCustomerProfileImage(10, profileImageId, null);
+    }
+}
@@ -3,20 +3,36 @@ package com.msbeigi.customer;
 import com.msbeigi.exception.DuplicateResourceException;
 import com.msbeigi.exception.RequestValidationException;
 import com.msbeigi.exception.ResourceNotFoundException;
+import com.msbeigi.jwt.ActiveUserCache;
+import com.msbeigi.s3.AsyncS3Service;
+import com.msbeigi.s3.ContentRange;
 import com.msbeigi.s3.S3Buckets;
-import com.msbeigi.s3.S3Service;
+import com.msbeigi.s3.S3ObjectCache;
+import com.msbeigi.s3.S3ObjectContent;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpRange;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -30,9 +46,25 @@ class CustomerServiceTest {
     @Mock
     private PasswordEncoder passwordEncoder;
     @Mock
-    private S3Service s3Service;
+    private AsyncS3Service s3Service;
+    @Mock
+    private S3ObjectCache s3ObjectCache;
     @Mock
     private S3Buckets s3Buckets;
+    @Mock
+    private EmailBloomFilter emailBloomFilter;
+    @Mock
+    private ProfileImageVariantService profileImageVariantService;
+    @Mock
+    private ProfileImageReferenceService profileImageReferenceService;
+    @Mock
+    private ActiveUserCache activeUserCache;
+
+    private final List<Runnable> applicationTasks = new ArrayList<>();
+    private final Executor applicationTaskExecutor = task -> {
+        applicationTasks.add(task);
+        task.run();
+    };
 
     private CustomerService underTest;
     private final CustomerDTOMapper customerDTOMapper = new CustomerDTOMapper();
@@ -45,7 +77,13 @@ class CustomerServiceTest {
                 customerDTOMapper,
                 passwordEncoder,
                 s3Service,
-                s3Buckets
+                s3ObjectCache,
+                s3Buckets,
+                emailBloomFilter,
+                profileImageVariantService,
+                profileImageReferenceService,
+                activeUserCache,
+                applicationTaskExecutor
         );
     }
 
@@ -58,6 +96,81 @@ class CustomerServiceTest {
         verify(customerDao).selectAllCustomers();
     }
 
+    @Test
+    void canExportAllCustomers() {
+        // Given
+        var alex = new Customer(1, "Alex", "alex@gmail.com", "password", 22, Gender.MALE);
+        var jamila = new Customer(2, "Jamila", "jamila@gmail.com", "password", 33, Gender.FEMALE);
+        doAnswer(invocation -> {
+            Consumer<Customer> consumer = invocation.getArgument(1);
+            consumer.accept(alex);
+            consumer.accept(jamila);
+            return null;
+        }).when(customerDao).streamAllCustomers(eq(CustomerService.EXPORT_FETCH_SIZE), any());
+
+        List<CustomerDTO> exported = new ArrayList<>();
+
+        // When
+        underTest.exportAllCustomers(exported::add);
+
+        // Then
+        assertThat(exported)
+                .containsExactly(customerDTOMapper.apply(alex), customerDTOMapper.apply(jamila));
+    }
+
+    @Test
+    void canGetFirstCustomerPage() {
+        // Given
+        var alex = new Customer(1, "Alex", "alex@gmail.com", "password", 22, Gender.MALE);
+        var jamila = new Customer(2, "Jamila", "jamila@gmail.com", "password", 33, Gender.FEMALE);
+        var ali = new Customer(3, "Ali", "ali@gmail.com", "password", 41, Gender.MALE);
+        when(customerDao.selectCustomersAfterId(0, 3)).thenReturn(List.of(alex, jamila, ali));
+
+        // When
+        CustomerPage actual = underTest.getCustomerPage(null, 2);
+
+        // Then
+        assertThat(actual.customers())
+                .containsExactly(customerDTOMapper.apply(alex), customerDTOMapper.apply(jamila));
+        assertThat(CustomerCursor.decode(actual.nextCursor())).isEqualTo(2);
+    }
+
+    @Test
+    void canGetCustomerPageAfterCursor() {
+        // Given
+        var ali = new Customer(3, "Ali", "ali@gmail.com", "password", 41, Gender.MALE);
+        when(customerDao.selectCustomersAfterId(2, 3)).thenReturn(List.of(ali));
+
+        // When
+        CustomerPage actual = underTest.getCustomerPage(CustomerCursor.encode(2), 2);
+
+        // Then
+        assertThat(actual.customers()).containsExactly(customerDTOMapper.apply(ali));
+        assertThat(actual.nextCursor()).isNull();
+    }
+
+    @Test
+    void willThrowWhenCustomerPageLimitIsOutOfRange() {
+        // When
+        assertThatThrownBy(() -> underTest.getCustomerPage(null, 0))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessage("limit must be between 1 and 1000");
+
+        // Then
+        verifyNoInteractions(customerDao);
+    }
+
+    @Test
+    void willThrowWhenCustomerPageCursorIsInvalid() {
+        // When
+        assertThatThrownBy(() -> underTest.getCustomerPage("not a cursor", 10))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessage("invalid cursor [not a cursor]");
+
+        // Then
+        verifyNoInteractions(customerDao);
+    }
+
     @Test
     void canGetCustomerById() {
         // Given
@@ -100,6 +213,7 @@ class CustomerServiceTest {
         // Given
         String email = "alex@gmail.com";
         when(customerDao.existCustomerWithEmail(email)).thenReturn(false);
+        when(emailBloomFilter.mightContain(email)).thenReturn(true);
 
         var request = new CustomerRegistrationRequest(
                 "Alex", email, "password", 22, Gender.MALE
@@ -131,6 +245,7 @@ class CustomerServiceTest {
         // Given
         String email = "alex@gmail.com";
         when(customerDao.existCustomerWithEmail(email)).thenReturn(true);
+        when(emailBloomFilter.mightContain(email)).thenReturn(true);
 
         var request = new CustomerRegistrationRequest(
                 "Alex", email, "password", 22, Gender.MALE
@@ -146,18 +261,87 @@ class CustomerServiceTest {
 
     }
 
+    @Test
+    void willSkipEmailQueryWhenBloomFilterHasNoMatch() {
+        // Given
+        String email = "alex@gmail.com";
+        when(emailBloomFilter.mightContain(email)).thenReturn(false);
+
+        var request = new CustomerRegistrationRequest(
+                "Alex", email, "password", 22, Gender.MALE
+        );
+
+        // When
+        underTest.addCustomer(request);
+
+        // Then
+        verify(customerDao, never()).existCustomerWithEmail(any());
+        verify(customerDao).insertCustomer(any());
+        verify(emailBloomFilter).put(email);
+    }
+
+    @Test
+    void addCustomerInvalidatesCachedActiveUser() {
+        // Given
+        String email = "alex@gmail.com";
+        when(emailBloomFilter.mightContain(email)).thenReturn(false);
+
+        var request = new CustomerRegistrationRequest(
+                "Alex", email, "password", 22, Gender.MALE
+        );
+
+        // When
+        underTest.addCustomer(request);
+
+        // Then
+        // a deleted customer's token may have cached the email as inactive
+        var inOrder = inOrder(customerDao, activeUserCache);
+        inOrder.verify(customerDao).insertCustomer(any());
+        inOrder.verify(activeUserCache).invalidate(email);
+    }
+
+    @Test
+    void willThrowWhenInsertViolatesUniqueEmail() {
+        // Given
+        String email = "alex@gmail.com";
+        when(emailBloomFilter.mightContain(email)).thenReturn(false);
+        doThrow(new DuplicateKeyException("customer_email_unique"))
+                .when(customerDao).insertCustomer(any());
+
+        var request = new CustomerRegistrationRequest(
+                "Alex", email, "password", 22, Gender.MALE
+        );
+
+        // When
+        assertThatThrownBy(() -> underTest.addCustomer(request))
+                .isInstanceOf(DuplicateResourceException.class)
+                .hasMessage("email already taken");
+
+        // Then
+        verify(emailBloomFilter, never()).put(any());
+        verify(activeUserCache, never()).invalidate(any());
+    }
+
     @Test
     void deleteCustomerById() {
         // Given
         int id = 10;
+        var customer = new Customer(
+                id,
+                "Alex",
+                "alex@gmail.com",
+                "password", 22,
+                Gender.MALE);
 
-        when(customerDao.existCustomerById(id)).thenReturn(true);
+        when(customerDao.selectCustomerById(id)).thenReturn(Optional.of(customer));
 
         // When
         underTest.deleteCustomerById(id);
 
         // Then
-        verify(customerDao).deleteCustomerById(id);
+        // deletes the customer together with its profile image reference
+        verify(profileImageReferenceService).deleteCustomer(id);
+        verify(activeUserCache).invalidate(customer.getEmail());
     }
 
     @Test
@@ -165,7 +349,7 @@ class CustomerServiceTest {
         // Given
         int id = 10;
 
-        when(customerDao.existCustomerById(id)).thenReturn(false);
+        when(customerDao.selectCustomerById(id)).thenReturn(Optional.empty());
 
         // When
         assertThatThrownBy(() -> underTest.deleteCustomerById(id))
@@ -174,6 +358,7 @@ class CustomerServiceTest {
 
         // Then
         verify(customerDao, never()).deleteCustomerById(id);
+        verify(activeUserCache, never()).invalidate(any());
     }
 
 
@@ -187,14 +372,16 @@ class CustomerServiceTest {
                 "alex@gmail.com",
                 "password", 22,
                 Gender.MALE);
+        customer.setVersion(4);
         when(customerDao.selectCustomerById(id)).thenReturn(Optional.of(customer));
 
         String newEmail = "updated@gmail.com";
 
         var updateRequest =
-                new CustomerUpdateRequest("updated", newEmail, 36);
+                new CustomerUpdateRequest("updated", newEmail, 36, null);
 
         when(customerDao.existCustomerWithEmail(newEmail)).thenReturn(false);
+        when(emailBloomFilter.mightContain(newEmail)).thenReturn(true);
 
         // When
         underTest.updateCustomerById(id, updateRequest);
@@ -209,6 +396,8 @@ class CustomerServiceTest {
         assertThat(capturedCustomer.getName()).isEqualTo(updateRequest.name());
         assertThat(capturedCustomer.getEmail()).isEqualTo(updateRequest.email());
         assertThat(capturedCustomer.getAge()).isEqualTo(updateRequest.age());
+        // guarded by the version the change was checked against
+        assertThat(capturedCustomer.getVersion()).isEqualTo(4);
     }
 
     @Test
@@ -224,7 +413,7 @@ class CustomerServiceTest {
         when(customerDao.selectCustomerById(id)).thenReturn(Optional.of(customer));
 
         var updateRequest =
-                new CustomerUpdateRequest("updated", null, null);
+                new CustomerUpdateRequest("updated", null, null, null);
 
         // When
         underTest.updateCustomerById(id, updateRequest);
@@ -236,9 +425,12 @@ class CustomerServiceTest {
 
         Customer capturedCustomer = customerArgumentCaptor.getValue();
 
+        // only the changed column is sent
+        assertThat(capturedCustomer.getId()).isEqualTo(id);
         assertThat(capturedCustomer.getName()).isEqualTo(updateRequest.name());
-        assertThat(capturedCustomer.getEmail()).isEqualTo(customer.getEmail());
-        assertThat(capturedCustomer.getAge()).isEqualTo(customer.getAge());
+        assertThat(capturedCustomer.getEmail()).isNull();
+        assertThat(capturedCustomer.getAge()).isNull();
+        verify(activeUserCache, never()).invalidate(any());
     }
 
     @Test
@@ -256,9 +448,10 @@ class CustomerServiceTest {
         var newEmail = "updated@gmail.com";
 
         var updateRequest =
-                new CustomerUpdateRequest(null, newEmail, null);
+                new CustomerUpdateRequest(null, newEmail, null, null);
 
         when(customerDao.existCustomerWithEmail(newEmail)).thenReturn(false);
+        when(emailBloomFilter.mightContain(newEmail)).thenReturn(true);
 
         // When
         underTest.updateCustomerById(id, updateRequest);
@@ -270,9 +463,11 @@ class CustomerServiceTest {
 
         Customer capturedCustomer = customerArgumentCaptor.getValue();
 
-        assertThat(capturedCustomer.getName()).isEqualTo(customer.getName());
+        assertThat(capturedCustomer.getName()).isNull();
         assertThat(capturedCustomer.getEmail()).isEqualTo(newEmail);
-        assertThat(capturedCustomer.getAge()).isEqualTo(customer.getAge());
+        assertThat(capturedCustomer.getAge()).isNull();
+        verify(activeUserCache).invalidate("alex@gmail.com");
+        verify(activeUserCache).invalidate(newEmail);
     }
 
     @Test
@@ -290,7 +485,7 @@ class CustomerServiceTest {
         int newAge = 44;
 
         var updateRequest =
-                new CustomerUpdateRequest(null, null, newAge);
+                new CustomerUpdateRequest(null, null, newAge, null);
 
         // When
         underTest.updateCustomerById(id, updateRequest);
@@ -302,8 +497,8 @@ class CustomerServiceTest {
 
         Customer capturedCustomer = customerArgumentCaptor.getValue();
 
-        assertThat(capturedCustomer.getName()).isEqualTo(customer.getName());
-        assertThat(capturedCustomer.getEmail()).isEqualTo(customer.getEmail());
+        assertThat(capturedCustomer.getName()).isNull();
+        assertThat(capturedCustomer.getEmail()).isNull();
         assertThat(capturedCustomer.getAge()).isEqualTo(newAge);
     }
 
@@ -322,9 +517,10 @@ class CustomerServiceTest {
         var newEmail = "updated@gmail.com";
 
         var updateRequest =
-                new CustomerUpdateRequest(null, newEmail, null);
+                new CustomerUpdateRequest(null, newEmail, null, null);
 
         when(customerDao.existCustomerWithEmail(newEmail)).thenReturn(true);
+        when(emailBloomFilter.mightContain(newEmail)).thenReturn(true);
 
         // When
         assertThatThrownBy(() -> underTest.updateCustomerById(id, updateRequest))
@@ -348,7 +544,7 @@ class CustomerServiceTest {
         when(customerDao.selectCustomerById(id)).thenReturn(Optional.of(customer));
 
         var updateRequest =
-                new CustomerUpdateRequest(customer.getName(), customer.getEmail(), customer.getAge());
+                new CustomerUpdateRequest(customer.getName(), customer.getEmail(), customer.getAge(), null);
 
         // When
         assertThatThrownBy(() -> underTest.updateCustomerById(id, updateRequest))
@@ -359,6 +555,127 @@ class CustomerServiceTest {
         verify(customerDao, never()).updateCustomer(any());
     }
 
+    @Test
+    void canUpdateCustomerAtVersionWithoutReadingIt() {
+        // Given
+        int id = 10;
+        var updateRequest =
+                new CustomerUpdateRequest("updated", null, 36, 3);
+
+        // When
+        underTest.updateCustomerById(id, updateRequest);
+
+        // Then
+        ArgumentCaptor<Customer> customerArgumentCaptor = ArgumentCaptor.forClass(Customer.class);
+
+        verify(customerDao).updateCustomer(customerArgumentCaptor.capture());
+        verify(customerDao, never()).selectCustomerById(any());
+
+        Customer capturedCustomer = customerArgumentCaptor.getValue();
+
+        assertThat(capturedCustomer.getId()).isEqualTo(id);
+        assertThat(capturedCustomer.getName()).isEqualTo(updateRequest.name());
+        assertThat(capturedCustomer.getEmail()).isNull();
+        assertThat(capturedCustomer.getAge()).isEqualTo(updateRequest.age());
+        assertThat(capturedCustomer.getVersion()).isEqualTo(3);
+        verify(emailBloomFilter, never()).put(any());
+        verify(activeUserCache, never()).invalidate(any());
+    }
+
+    @Test
+    void canRevokePreviousEmailWhenUpdatingEmailAtVersion() {
+        // Given
+        int id = 10;
+        var customer = new Customer(
+                id,
+                "Alex",
+                "alex@gmail.com",
+                "password", 22,
+                Gender.MALE);
+        when(customerDao.selectCustomerById(id)).thenReturn(Optional.of(customer));
+
+        var updateRequest =
+                new CustomerUpdateRequest(null, "updated@gmail.com", null, 3);
+
+        // When
+        underTest.updateCustomerById(id, updateRequest);
+
+        // Then
+        ArgumentCaptor<Customer> customerArgumentCaptor = ArgumentCaptor.forClass(Customer.class);
+
+        verify(customerDao).updateCustomer(customerArgumentCaptor.capture());
+
+        Customer capturedCustomer = customerArgumentCaptor.getValue();
+
+        assertThat(capturedCustomer.getEmail()).isEqualTo(updateRequest.email());
+        assertThat(capturedCustomer.getVersion()).isEqualTo(3);
+        verify(emailBloomFilter).put(updateRequest.email());
+        verify(activeUserCache).invalidate("alex@gmail.com");
+        verify(activeUserCache).invalidate(updateRequest.email());
+    }
+
+    @Test
+    void willThrowWhenCustomerUpdateAtVersionHasNoChanges() {
+        // Given
+        var updateRequest = new CustomerUpdateRequest(null, null, null, 3);
+
+        // When
+        assertThatThrownBy(() -> underTest.updateCustomerById(10, updateRequest))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessage("no data changes found!");
+
+        // Then
+        verify(customerDao, never()).updateCustomer(any());
+    }
+
+    @Test
+    void willThrowWhenCustomerUpdateAtVersionTakesExistingEmail() {
+        // Given
+        int id = 10;
+        var updateRequest =
+                new CustomerUpdateRequest(null, "taken@gmail.com", null, 3);
+        doThrow(new DuplicateKeyException("customer_email_unique"))
+                .when(customerDao).updateCustomer(any());
+
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.updateCustomerById(id, updateRequest))
+                .isInstanceOf(DuplicateResourceException.class)
+                .hasMessage("email already was taken.");
+        verify(emailBloomFilter, never()).put(any());
+    }
+
+    @Test
+    void willThrowWhenCustomerUpdateAtVersionIsStale() {
+        // Given
+        int id = 10;
+        var updateRequest = new CustomerUpdateRequest("updated", null, null, 3);
+        doThrow(new OptimisticLockingFailureException("stale"))
+                .when(customerDao).updateCustomer(any());
+        when(customerDao.existCustomerById(id)).thenReturn(true);
+
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.updateCustomerById(id, updateRequest))
+                .isInstanceOf(OptimisticLockingFailureException.class);
+    }
+
+    @Test
+    void willThrowWhenCustomerUpdateAtVersionIsMissing() {
+        // Given
+        int id = 10;
+        var updateRequest = new CustomerUpdateRequest("updated", null, null, 3);
+        doThrow(new OptimisticLockingFailureException("stale"))
+                .when(customerDao).updateCustomer(any());
+        when(customerDao.existCustomerById(id)).thenReturn(false);
+
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.updateCustomerById(id, updateRequest))
+                .isInstanceOf(ResourceNotFoundException.class)
+                .hasMessage("customer with id [%s] not found.".formatted(id));
+    }
+
     @Test
     void canUploadProfileImage() {
         // Given
@@ -372,22 +689,70 @@ class CustomerServiceTest {
 
         String bucket = "customer-bucket";
         when(s3Buckets.getCustomer()).thenReturn(bucket);
+        List<byte[]> uploaded = new ArrayList<>();
+        List<Path> uploadFiles = new ArrayList<>();
+        when(s3Service.putObject(eq(bucket), anyString(), any(Path.class))).thenAnswer(invocation -> {
+            Path file = invocation.getArgument(2);
+            uploadFiles.add(file);
+            uploaded.add(Files.readAllBytes(file));
+            return CompletableFuture.completedFuture(null);
+        });
 
         // When
-        underTest.uploadCustomerProfileImage(customerId, multipartFile);
+        underTest.uploadCustomerProfileImage(customerId, multipartFile).join();
 
         // Then
-        ArgumentCaptor<String> profileImageIdArgumentCaptor =
-                ArgumentCaptor.forClass(String.class);
-        verify(customerDao).updateCustomerProfileImageId(
-                profileImageIdArgumentCaptor.capture(),
-                eq(customerId)
-        );
-
+        // sha-256 of "Hello World!"
+        String profileImageId = "7f83b1657ff1fc53b92dc18148a1d65dfc2d4b1fa3d677284addd200126d9069";
         verify(s3Service).putObject(
-                bucket,
-                "profile-images/%s/%s".formatted(customerId, profileImageIdArgumentCaptor.getValue()),
-                bytes);
+                eq(bucket),
+                eq("images/sha256/" + profileImageId),
+                any(Path.class));
+        assertThat(uploaded).singleElement().isEqualTo(bytes);
+        assertThat(uploadFiles.get(0)).doesNotExist();
+        verify(profileImageReferenceService).assignAfterStore(customerId, profileImageId);
+        verify(profileImageVariantService).generateVariants(customerId, profileImageId);
+        // not on the thread that completed the s3 future
+        assertThat(applicationTasks).hasSize(1);
+    }
+
+    @Test
+    void skipsPutWhenSameImageIsAlreadyStored() {
+        // Given
+        int customerId = 10;
+        String profileImageId = "7f83b1657ff1fc53b92dc18148a1d65dfc2d4b1fa3d677284addd200126d9069";
+
+        when(customerDao.existCustomerById(customerId)).thenReturn(true);
+        when(profileImageReferenceService.assignIfStored(customerId, profileImageId)).thenReturn(true);
+
+        // When
+        underTest.uploadCustomerProfileImage(
+                customerId, new MockMultipartFile("file", "Hello World!".getBytes())).join();
+
+        // Then
+        verifyNoInteractions(s3Service);
+        verifyNoInteractions(profileImageVariantService);
+    }
+
+    @Test
+    void willNotSaveProfileImageIdWhenUploadFails() {
+        // Given
+        int customerId = 10;
+
+        when(customerDao.existCustomerById(customerId)).thenReturn(true);
+        when(s3Buckets.getCustomer()).thenReturn("customer-bucket");
+        when(s3Service.putObject(anyString(), anyString(), any(Path.class)))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("s3 is down")));
+
+        // When
+        CompletableFuture<Void> actual = underTest.uploadCustomerProfileImage(
+                customerId, new MockMultipartFile("file", "Hello World!".getBytes()));
+
+        // Then
+        assertThatThrownBy(actual::join)
+                .hasRootCauseInstanceOf(IllegalStateException.class);
+        verify(profileImageReferenceService, never()).assignAfterStore(any(), any());
+        verifyNoInteractions(profileImageVariantService);
     }
 
     @Test
@@ -419,10 +784,7 @@ class CustomerServiceTest {
         when(customerDao.existCustomerById(customerId)).thenReturn(true);
 
         MultipartFile multipartFile = mock(MultipartFile.class);
-        when(multipartFile.getBytes()).thenThrow(IOException.class);
-
-        String bucket = "customer-bucket";
-        when(s3Buckets.getCustomer()).thenReturn(bucket);
+        when(multipartFile.getInputStream()).thenThrow(IOException.class);
 
         // When
         assertThatThrownBy(() ->
@@ -432,10 +794,11 @@ class CustomerServiceTest {
                 .hasRootCauseInstanceOf(IOException.class);
         // Then
         verify(customerDao, never()).updateCustomerProfileImageId(any(), any());
+        verifyNoInteractions(s3Service);
     }
 
     @Test
-    void canDownloadProfileImage() {
+    void canDownloadProfileImage() throws IOException {
         // Given
         int customerId = 10;
         String profileImageId = "22222";
@@ -454,17 +817,154 @@ class CustomerServiceTest {
 
         byte[] expectedImage = "image".getBytes();
 
-        when(s3Service.getObject(
+        when(s3ObjectCache.getObject(
                 bucket,
-                "profile-images/%s/%s".formatted(customerId, profileImageId)
+                "profile-images/%s/%s".formatted(customerId, profileImageId),
+                null
         ))
-                .thenReturn(expectedImage);
+                .thenReturn(new S3ObjectContent(
+                        new ByteArrayInputStream(expectedImage),
+                        (long) expectedImage.length,
+                        null
+                ));
 
         // When
-        byte[] actualImage = underTest.getCustomerProfileImage(customerId);
+        ProfileImage actualImage = underTest.getCustomerProfileImage(customerId);
 
         // Then
-        assertThat(actualImage).isEqualTo(expectedImage);
+        assertThat(actualImage.contentLength()).isEqualTo(expectedImage.length);
+        assertThat(actualImage.content().readAllBytes()).isEqualTo(expectedImage);
+    }
+
+    @Test
+    void canDownloadProfileImageVariant() throws IOException {
+        // Given
+        int customerId = 10;
+        String profileImageId = "22222";
+        byte[] expectedImage = "thumbnail".getBytes();
+        when(profileImageVariantService.getVariant(customerId, profileImageId, 64, null))
+                .thenReturn(Optional.of(new S3ObjectContent(
+                        new ByteArrayInputStream(expectedImage),
+                        (long) expectedImage.length,
+                        null
+                )));
+
+        // When
+        ProfileImage actualImage = underTest.getCustomerProfileImage(customerId, profileImageId, 64);
+
+        // Then
+        assertThat(actualImage.size()).isEqualTo(64);
+        assertThat(actualImage.content().readAllBytes()).isEqualTo(expectedImage);
+        verifyNoInteractions(s3ObjectCache);
+    }
+
+    @Test
+    void fallsBackToOriginalWhenVariantIsUnavailable() throws IOException {
+        // Given
+        int customerId = 10;
+        String profileImageId = "22222";
+        when(profileImageVariantService.getVariant(customerId, profileImageId, 64, null))
+                .thenReturn(Optional.empty());
+
+        String bucket = "customer-bucket";
+        when(s3Buckets.getCustomer()).thenReturn(bucket);
+
+        byte[] expectedImage = "image".getBytes();
+        when(s3ObjectCache.getObject(
+                bucket,
+                "profile-images/%s/%s".formatted(customerId, profileImageId),
+                null
+        ))
+                .thenReturn(new S3ObjectContent(
+                        new ByteArrayInputStream(expectedImage),
+                        (long) expectedImage.length,
+                        null
+                ));
+
+        // When
+        ProfileImage actualImage = underTest.getCustomerProfileImage(customerId, profileImageId, 64);
+
+        // Then
+        assertThat(actualImage.size()).isNull();
+        assertThat(actualImage.content().readAllBytes()).isEqualTo(expectedImage);
+    }
+
+    @Test
+    void canDownloadProfileImageRange() throws IOException {
+        // Given
+        int customerId = 10;
+        String profileImageId = "22222";
+        String bucket = "customer-bucket";
+        when(s3Buckets.getCustomer()).thenReturn(bucket);
+
+        HttpRange range = HttpRange.createByteRange(1, 3);
+        ContentRange contentRange = new ContentRange(1, 3, 5);
+        when(s3ObjectCache.getObject(
+                bucket,
+                "profile-images/%s/%s".formatted(customerId, profileImageId),
+                range
+        ))
+                .thenReturn(new S3ObjectContent(
+                        new ByteArrayInputStream("mag".getBytes()),
+                        3L,
+                        null,
+                        contentRange
+                ));
+
+        // When
+        ProfileImage actualImage = underTest.getCustomerProfileImage(customerId, profileImageId, null, range);
+
+        // Then
+        assertThat(actualImage.contentRange()).isEqualTo(contentRange);
+        assertThat(actualImage.content().readAllBytes()).isEqualTo("mag".getBytes());
+    }
+
+    @Test
+    void fallbackToOriginalIgnoresRangeOfVariant() {
+        // Given
+        int customerId = 10;
+        String profileImageId = "22222";
+        HttpRange range = HttpRange.createByteRange(1, 3);
+        when(profileImageVariantService.getVariant(customerId, profileImageId, 64, range))
+                .thenReturn(Optional.empty());
+
+        String bucket = "customer-bucket";
+        when(s3Buckets.getCustomer()).thenReturn(bucket);
+        when(s3ObjectCache.getObject(
+                bucket,
+                "profile-images/%s/%s".formatted(customerId, profileImageId),
+                null
+        ))
+                .thenReturn(new S3ObjectContent(new ByteArrayInputStream("image".getBytes()), 5L, null));
+
+        // When
+        ProfileImage actualImage = underTest.getCustomerProfileImage(customerId, profileImageId, 64, range);
+
+        // Then
+        assertThat(actualImage.size()).isNull();
+        assertThat(actualImage.contentRange()).isNull();
+    }
+
+    @Test
+    void canGetProfileImageId() {
+        // Given
+        int customerId = 10;
+        var customer = new Customer(
+                customerId,
+                "Alex",
+                "alex@gmail.com",
+                22,
+                Gender.MALE,
+                "password",
+                "22222");
+        when(customerDao.selectCustomerById(customerId)).thenReturn(Optional.of(customer));
+
+        // When
+        String actual = underTest.getCustomerProfileImageId(customerId);
+
+        // Then
+        assertThat(actual).isEqualTo("22222");
+        verifyNoInteractions(s3ObjectCache);
     }
 
     @Test
@@ -489,7 +989,7 @@ class CustomerServiceTest {
                 .isInstanceOf(ResourceNotFoundException.class)
                 .hasMessage("customer with id [%s] profile image not found!".formatted(customerId));
 
-        verifyNoInteractions(s3Service);
+        verifyNoInteractions(s3ObjectCache);
         verifyNoInteractions(s3Buckets);
 
     }
@@ -508,7 +1008,7 @@ class CustomerServiceTest {
                 .isInstanceOf(ResourceNotFoundException.class)
                 .hasMessage("customer with id [%s] not found!".formatted(customerId));
 
-        verifyNoInteractions(s3Service);
+        verifyNoInteractions(s3ObjectCache);
         verifyNoInteractions(s3Buckets);
 
     }
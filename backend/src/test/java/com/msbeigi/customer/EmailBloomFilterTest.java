@@ -0,0 +1,70 @@
+package com.msbeigi.customer;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+
+@ExtendWith(MockitoExtension.class)
+class EmailBloomFilterTest {
+
+    @Mock
+    private CustomerDao customerDao;
+
+    private EmailBloomFilter underTest;
+
+    @BeforeEach
+    void setUp() {
+        underTest = new EmailBloomFilter(customerDao, 10_000, 0.01);
+    }
+
+    @Test
+    void mightContainEveryEmailBeforeLoad() {
+        assertThat(underTest.mightContain("alex@gmail.com")).isTrue();
+    }
+
+    @Test
+    void canLoadExistingEmails() {
+        // Given
+        doAnswer(invocation -> {
+            Consumer<String> consumer = invocation.getArgument(1);
+            consumer.accept("alex@gmail.com");
+            consumer.accept("jamila@gmail.com");
+            return null;
+        }).when(customerDao).streamAllEmails(anyInt(), any());
+
+        // When
+        underTest.load();
+
+        // Then
+        assertThat(underTest.mightContain("alex@gmail.com")).isTrue();
+        assertThat(underTest.mightContain("jamila@gmail.com")).isTrue();
+        assertThat(underTest.mightContain("ali@gmail.com")).isFalse();
+    }
+
+    @Test
+    void willKeepFalsePositivesNearConfiguredProbability() {
+        // Given
+        underTest.load();
+        IntStream.range(0, 10_000).forEach(i -> underTest.put("customer-" + i + "@gmail.com"));
+
+        // When
+        long falsePositives = IntStream.range(0, 10_000)
+                .filter(i -> underTest.mightContain("unknown-" + i + "@gmail.com"))
+                .count();
+
+        // Then
+        assertThat(IntStream.range(0, 10_000)
+                .allMatch(i -> underTest.mightContain("customer-" + i + "@gmail.com"))).isTrue();
+        assertThat(falsePositives).isLessThan(300);
+    }
+}
@@ -0,0 +1,78 @@
+package com.msbeigi.customer;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class IntObjectHashMapTest {
+
+    private final IntObjectHashMap<String> underTest = new IntObjectHashMap<>();
+
+    @Test
+    void canPutGetAndReplace() {
+        // When
+        String first = underTest.put(1, "one");
+        String second = underTest.put(1, "uno");
+
+        // Then
+        assertThat(first).isNull();
+        assertThat(second).isEqualTo("one");
+        assertThat(underTest.get(1)).isEqualTo("uno");
+        assertThat(underTest.get(2)).isNull();
+        assertThat(underTest.size()).isEqualTo(1);
+    }
+
+    @Test
+    void keepsEntriesAcrossResizes() {
+        // When
+        for (int i = -1_000; i < 100_000; i++) {
+            underTest.put(i, Integer.toString(i));
+        }
+
+        // Then
+        assertThat(underTest.size()).isEqualTo(101_000);
+        assertThat(underTest.get(-1_000)).isEqualTo("-1000");
+        assertThat(underTest.get(0)).isEqualTo("0");
+        assertThat(underTest.get(99_999)).isEqualTo("99999");
+        assertThat(underTest.get(100_000)).isNull();
+    }
+
+    @Test
+    void removeKeepsProbeChainsIntact() {
+        // Given
+        Map<Integer, String> expected = new HashMap<>();
+        SplittableRandom random = new SplittableRandom(42);
+
+        // When
+        for (int i = 0; i < 200_000; i++) {
+            int key = random.nextInt(5_000);
+            if (random.nextBoolean()) {
+                assertThat(underTest.put(key, "v" + i)).isEqualTo(expected.put(key, "v" + i));
+            } else {
+                assertThat(underTest.remove(key)).isEqualTo(expected.remove(key));
+            }
+        }
+
+        // Then
+        assertThat(underTest.size()).isEqualTo(expected.size());
+        for (int key = 0; key < 5_000; key++) {
+            assertThat(underTest.get(key)).isEqualTo(expected.get(key));
+        }
+        List<String> values = new ArrayList<>();
+        underTest.forEachValue(values::add);
+        assertThat(values).containsExactlyInAnyOrderElementsOf(expected.values());
+    }
+
+    @Test
+    void willThrowWhenPuttingNullValue() {
+        assertThatThrownBy(() -> underTest.put(1, null))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
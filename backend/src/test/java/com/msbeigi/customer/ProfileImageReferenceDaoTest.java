@@ -0,0 +1,171 @@
+package com.msbeigi.customer;
+
+import com.msbeigi.AbstractTestContainers;
+import com.msbeigi.exception.ResourceNotFoundException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ProfileImageReferenceDaoTest extends AbstractTestContainers {
+
+    private final Random random = new Random();
+
+    private JdbcTemplate jdbcTemplate;
+    private ProfileImageReferenceDao underTest;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = getJdbcTemplate();
+        underTest = new ProfileImageReferenceDao(jdbcTemplate);
+    }
+
+    @Test
+    void addReferenceIfStoredIsFalseForUnknownDigest() {
+        // Given
+        String digest = digest();
+
+        // When
+        boolean actual = underTest.addReferenceIfStored(digest);
+
+        // Then
+        assertThat(actual).isFalse();
+        assertThat(referenceCount(digest)).isEmpty();
+    }
+
+    @Test
+    void addReferenceAfterStoreInsertsAndThenIncrements() {
+        // Given
+        String digest = digest();
+
+        // When
+        underTest.addReferenceAfterStore(digest);
+        // a second first upload of the same image takes the on conflict path
+        underTest.addReferenceAfterStore(digest);
+
+        // Then
+        assertThat(referenceCount(digest)).contains(2);
+    }
+
+    @Test
+    void addReferenceIfStoredIncrementsStoredDigest() {
+        // Given
+        String digest = digest();
+        underTest.addReferenceAfterStore(digest);
+
+        // When
+        boolean actual = underTest.addReferenceIfStored(digest);
+
+        // Then
+        assertThat(actual).isTrue();
+        assertThat(referenceCount(digest)).contains(2);
+    }
+
+    @Test
+    void removeReferenceStopsAtZeroAndKeepsRow() {
+        // Given
+        String digest = digest();
+        underTest.addReferenceAfterStore(digest);
+
+        // When
+        underTest.removeReference(digest);
+        underTest.removeReference(digest);
+
+        // Then
+        assertThat(referenceCount(digest)).contains(0);
+        assertThat(underTest.addReferenceIfStored(digest)).isTrue();
+    }
+
+    @Test
+    void releasedImageIsSelectedAndLockedOnlyAfterGracePeriod() {
+        // Given
+        String digest = digest();
+        underTest.addReferenceAfterStore(digest);
+        underTest.removeReference(digest);
+        Instant afterRelease = Instant.now().plus(1, ChronoUnit.MINUTES);
+        Instant beforeRelease = Instant.now().minus(1, ChronoUnit.MINUTES);
+
+        // When
+        List<String> actual = underTest.selectReleasedBefore(afterRelease, 1000);
+
+        // Then
+        assertThat(actual).contains(digest);
+        assertThat(underTest.selectReleasedBefore(beforeRelease, 1000)).doesNotContain(digest);
+        assertThat(underTest.lockReleasedBefore(digest, afterRelease)).isTrue();
+        assertThat(underTest.lockReleasedBefore(digest, beforeRelease)).isFalse();
+    }
+
+    @Test
+    void referencedAgainImageIsNotReleased() {
+        // Given
+        String digest = digest();
+        underTest.addReferenceAfterStore(digest);
+        underTest.removeReference(digest);
+
+        // When
+        underTest.addReferenceIfStored(digest);
+
+        // Then
+        Instant afterRelease = Instant.now().plus(1, ChronoUnit.MINUTES);
+        assertThat(underTest.selectReleasedBefore(afterRelease, 1000)).doesNotContain(digest);
+        assertThat(underTest.lockReleasedBefore(digest, afterRelease)).isFalse();
+    }
+
+    @Test
+    void deleteImageRemovesRowSoNextUploadStoresAgain() {
+        // Given
+        String digest = digest();
+        underTest.addReferenceAfterStore(digest);
+        underTest.removeReference(digest);
+
+        // When
+        underTest.deleteImage(digest);
+
+        // Then
+        assertThat(referenceCount(digest)).isEmpty();
+        assertThat(underTest.addReferenceIfStored(digest)).isFalse();
+    }
+
+    @Test
+    void lockCustomerProfileImageId() {
+        // Given
+        String email = FAKER.internet().emailAddress() + "-" + UUID.randomUUID();
+        String digest = digest();
+        jdbcTemplate.update("""
+                INSERT INTO customer(id, name, email, password, age, gender, profile_image_id)
+                VALUES (nextval('customer_id_seq'), 'Alex', ?, 'password', 22, 'MALE', ?)
+                """, email, digest);
+        Integer id = jdbcTemplate.queryForObject("SELECT id FROM customer WHERE email = ?", Integer.class, email);
+
+        // When
+        Optional<String> actual = underTest.lockCustomerProfileImageId(id);
+
+        // Then
+        assertThat(actual).contains(digest);
+        assertThatThrownBy(() -> underTest.lockCustomerProfileImageId(-1))
+                .isInstanceOf(ResourceNotFoundException.class)
+                .hasMessage("customer with id [-1] not found.");
+    }
+
+    private Optional<Integer> referenceCount(String digest) {
+        List<Integer> counts = jdbcTemplate.queryForList(
+                "SELECT reference_count FROM profile_image WHERE digest = ?", Integer.class, digest);
+        return counts.stream().findFirst();
+    }
+
+    private String digest() {
+        byte[] bytes = new byte[32];
+        random.nextBytes(bytes);
+        return HexFormat.of().formatHex(bytes);
+    }
+}
@@ -0,0 +1,107 @@
+package com.msbeigi.customer;
+
+import com.msbeigi.s3.S3Buckets;
+import com.msbeigi.s3.S3Service;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ProfileImageSweeperTest {
+
+    private static final String BUCKET = "customer";
+    private static final String DIGEST = "a".repeat(64);
+    private static final String OTHER_DIGEST = "b".repeat(64);
+
+    @Mock
+    private ProfileImageReferenceDao profileImageReferenceDao;
+    @Mock
+    private S3Service s3Service;
+    @Mock
+    private S3Buckets buckets;
+
+    private SimpleMeterRegistry meterRegistry;
+    private ProfileImageSweeper underTest;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        underTest = new ProfileImageSweeper(
+                profileImageReferenceDao, s3Service, buckets, TransactionOperations.withoutTransaction(),
+                meterRegistry, Duration.ofHours(24), Duration.ofDays(1), 100);
+    }
+
+    @AfterEach
+    void tearDown() {
+        underTest.destroy();
+    }
+
+    @Test
+    void deletesObjectsBeforeRowOfReleasedImage() {
+        // Given
+        when(buckets.getCustomer()).thenReturn(BUCKET);
+        when(profileImageReferenceDao.selectReleasedBefore(any(), eq(100))).thenReturn(List.of(DIGEST));
+        when(profileImageReferenceDao.lockReleasedBefore(eq(DIGEST), any())).thenReturn(true);
+
+        // When
+        int actual = underTest.sweep();
+
+        // Then
+        assertThat(actual).isEqualTo(1);
+        var inOrder = inOrder(s3Service, profileImageReferenceDao);
+        inOrder.verify(s3Service).deleteObject(BUCKET, "images/sha256/%s/64".formatted(DIGEST));
+        inOrder.verify(s3Service).deleteObject(BUCKET, "images/sha256/%s/256".formatted(DIGEST));
+        inOrder.verify(s3Service).deleteObject(BUCKET, "images/sha256/%s/1024".formatted(DIGEST));
+        inOrder.verify(s3Service).deleteObject(BUCKET, "images/sha256/%s".formatted(DIGEST));
+        inOrder.verify(profileImageReferenceDao).deleteImage(DIGEST);
+        assertThat(meterRegistry.get("profile-image.sweeper.deleted").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void keepsImageReferencedAgainBeforeLock() {
+        // Given
+        when(profileImageReferenceDao.selectReleasedBefore(any(), eq(100))).thenReturn(List.of(DIGEST));
+        when(profileImageReferenceDao.lockReleasedBefore(eq(DIGEST), any())).thenReturn(false);
+
+        // When
+        int actual = underTest.sweep();
+
+        // Then
+        assertThat(actual).isZero();
+        verifyNoInteractions(s3Service);
+        verify(profileImageReferenceDao, never()).deleteImage(any());
+    }
+
+    @Test
+    void keepsRowWhenObjectDeleteFailsAndGoesOn() {
+        // Given
+        when(buckets.getCustomer()).thenReturn(BUCKET);
+        when(profileImageReferenceDao.selectReleasedBefore(any(), eq(100))).thenReturn(List.of(DIGEST, OTHER_DIGEST));
+        when(profileImageReferenceDao.lockReleasedBefore(anyString(), any())).thenReturn(true);
+        doThrow(new RuntimeException("s3 unavailable"))
+                .when(s3Service).deleteObject(BUCKET, "images/sha256/%s/64".formatted(DIGEST));
+
+        // When
+        int actual = underTest.sweep();
+
+        // Then
+        assertThat(actual).isEqualTo(1);
+        verify(profileImageReferenceDao, never()).deleteImage(DIGEST);
+        verify(profileImageReferenceDao).deleteImage(OTHER_DIGEST);
+        assertThat(meterRegistry.get("profile-image.sweeper.failed").counter().count()).isEqualTo(1);
+    }
+}
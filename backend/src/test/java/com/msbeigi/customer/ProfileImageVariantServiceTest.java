@@ -0,0 +1,188 @@
+package com.msbeigi.customer;
+
+import com.msbeigi.exception.RequestValidationException;
+import com.msbeigi.s3.FakeS3;
+import com.msbeigi.s3.S3Buckets;
+import com.msbeigi.s3.S3ObjectCache;
+import com.msbeigi.s3.S3ObjectContent;
+import com.msbeigi.s3.S3Service;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ProfileImageVariantServiceTest {
+
+    private static final String BUCKET = "customer";
+
+    @TempDir
+    private Path tempDir;
+
+    private S3Service s3Service;
+    private ProfileImageVariantService underTest;
+
+    @BeforeEach
+    void setUp() {
+        s3Service = new S3Service(new FakeS3(tempDir.toString()));
+        S3ObjectCache s3ObjectCache = new S3ObjectCache(
+                s3Service, new SimpleMeterRegistry(), false, tempDir.resolve("cache"), DataSize.ofMegabytes(1));
+        S3Buckets buckets = new S3Buckets();
+        buckets.setCustomer(BUCKET);
+        underTest = new ProfileImageVariantService(
+                s3Service, s3ObjectCache, buckets, new SimpleMeterRegistry(), 1, 4, 1_000_000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        underTest.destroy();
+    }
+
+    @Test
+    void canGenerateVariantOnFirstRequest() throws IOException {
+        // Given
+        s3Service.putObject(BUCKET, "profile-images/1/abc", jpeg(800, 400));
+
+        // When
+        Optional<S3ObjectContent> actual = underTest.getVariant(1, "abc", 64);
+
+        // Then
+        assertThat(actual).isPresent();
+        BufferedImage image = read(actual.get().content());
+        assertThat(image.getWidth()).isEqualTo(64);
+        assertThat(image.getHeight()).isEqualTo(32);
+        assertThat(s3Service.getObject(BUCKET, "profile-images/1/abc/64")).isNotEmpty();
+    }
+
+    @Test
+    void sharesVariantsOfContentAddressedImageAcrossCustomers() {
+        // Given
+        String digest = "c".repeat(64);
+        s3Service.putObject(BUCKET, "images/sha256/" + digest, jpeg(800, 400));
+
+        // When
+        Optional<S3ObjectContent> first = underTest.getVariant(1, digest, 64);
+        Optional<S3ObjectContent> second = underTest.getVariant(2, digest, 64);
+
+        // Then
+        assertThat(first).isPresent();
+        assertThat(second).isPresent();
+        assertThat(s3Service.getObject(BUCKET, "images/sha256/%s/64".formatted(digest))).isNotEmpty();
+    }
+
+    @Test
+    void canGenerateAllVariantsAfterUpload() {
+        // Given
+        s3Service.putObject(BUCKET, "profile-images/1/abc", jpeg(300, 300));
+
+        // When
+        underTest.generateVariants(1, "abc").join();
+
+        // Then
+        for (Integer size : ProfileImageVariantService.SIZES) {
+            assertThat(s3Service.getObject(BUCKET, "profile-images/1/abc/" + size)).isNotEmpty();
+        }
+    }
+
+    @Test
+    void doesNotUpscaleSmallImages() throws IOException {
+        // Given
+        s3Service.putObject(BUCKET, "profile-images/1/abc", jpeg(100, 50));
+
+        // When
+        Optional<S3ObjectContent> actual = underTest.getVariant(1, "abc", 1024);
+
+        // Then
+        BufferedImage image = read(actual.orElseThrow().content());
+        assertThat(image.getWidth()).isEqualTo(100);
+        assertThat(image.getHeight()).isEqualTo(50);
+    }
+
+    @Test
+    void returnsEmptyWhenOriginalCanNotBeDecoded() {
+        // Given
+        s3Service.putObject(BUCKET, "profile-images/1/abc", "not an image".getBytes());
+
+        // When
+        Optional<S3ObjectContent> actual = underTest.getVariant(1, "abc", 64);
+
+        // Then
+        assertThat(actual).isEmpty();
+    }
+
+    @Test
+    void returnsEmptyWithoutDecodingImagesAbovePixelLimit() {
+        // Given
+        s3Service.putObject(BUCKET, "profile-images/1/abc", jpeg(1500, 1000));
+
+        // When
+        Optional<S3ObjectContent> actual = underTest.getVariant(1, "abc", 64);
+
+        // Then
+        assertThat(actual).isEmpty();
+        assertThat(s3Service.getObject(BUCKET, "profile-images/1/abc")).isNotEmpty();
+    }
+
+    @Test
+    void completesGenerationWhenDecodingThrowsError() {
+        // Given
+        S3Service failingS3Service = mock(S3Service.class);
+        when(failingS3Service.getObjectStream(any(), any())).thenThrow(new OutOfMemoryError("Java heap space"));
+        S3Buckets buckets = new S3Buckets();
+        buckets.setCustomer(BUCKET);
+        ProfileImageVariantService failing = new ProfileImageVariantService(
+                failingS3Service, mock(S3ObjectCache.class), buckets, new SimpleMeterRegistry(), 1, 4, 1_000_000);
+
+        // When
+        CompletableFuture<Boolean> actual = failing.generate(1, "abc", 64);
+
+        // Then
+        try {
+            assertThat(actual).succeedsWithin(Duration.ofSeconds(5)).isEqualTo(false);
+        } finally {
+            failing.destroy();
+        }
+    }
+
+    @Test
+    void willThrowWhenSizeIsNotSupported() {
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.getVariant(1, "abc", 100))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessage("profile image size [100] is not one of [64, 256, 1024]");
+    }
+
+    private static byte[] jpeg(int width, int height) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB), "jpg", out);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return out.toByteArray();
+    }
+
+    private static BufferedImage read(InputStream inputStream) throws IOException {
+        try (inputStream) {
+            return ImageIO.read(inputStream);
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.msbeigi.customer;
+
+import com.msbeigi.exception.RequestValidationException;
+import com.msbeigi.exception.ResourceNotFoundException;
+import com.msbeigi.s3.ReactiveS3Service;
+import com.msbeigi.s3.S3Buckets;
+import com.msbeigi.s3.S3ObjectStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+
+import java.nio.ByteBuffer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReactiveCustomerServiceTest {
+
+    @Mock
+    private ReactiveCustomerDao customerDao;
+    @Mock
+    private ReactiveS3Service s3Service;
+    @Mock
+    private S3Buckets s3Buckets;
+    @Mock
+    private ProfileImageVariantService profileImageVariantService;
+
+    private ReactiveCustomerService underTest;
+
+    @BeforeEach
+    void setUp() {
+        underTest = new ReactiveCustomerService(
+                customerDao,
+                new CustomerDTOMapper(),
+                s3Service,
+                s3Buckets,
+                profileImageVariantService
+        );
+    }
+
+    @Test
+    void canGetCustomerById() {
+        // Given
+        int id = 10;
+        Customer customer = new Customer(id, "Alex", "alex@gmail.com", "password", 19, Gender.MALE);
+        when(customerDao.selectCustomerById(id)).thenReturn(Mono.just(customer));
+
+        // When
+        // Then
+        StepVerifier.create(underTest.getCustomerById(id))
+                .assertNext(actual -> assertThat(actual.email()).isEqualTo("alex@gmail.com"))
+                .verifyComplete();
+    }
+
+    @Test
+    void willErrorWhenGetCustomerByIdReturnEmpty() {
+        // Given
+        int id = 10;
+        when(customerDao.selectCustomerById(id)).thenReturn(Mono.empty());
+
+        // When
+        // Then
+        StepVerifier.create(underTest.getCustomerById(id))
+                .expectErrorSatisfies(e -> assertThat(e)
+                        .isInstanceOf(ResourceNotFoundException.class)
+                        .hasMessage("Customer with id [%s] not found!".formatted(id)))
+                .verify();
+    }
+
+    @Test
+    void getCustomerPageFetchesOneExtraRowForTheNextCursor() {
+        // Given
+        when(customerDao.selectCustomersAfterId(0, 3)).thenReturn(Flux.just(
+                new Customer(1, "Alex", "alex@gmail.com", "password", 19, Gender.MALE),
+                new Customer(2, "Jamila", "jamila@gmail.com", "password", 21, Gender.FEMALE),
+                new Customer(3, "Ali", "ali@gmail.com", "password", 33, Gender.MALE)
+        ));
+
+        // When
+        // Then
+        StepVerifier.create(underTest.getCustomerPage(null, 2))
+                .assertNext(page -> {
+                    assertThat(page.customers()).extracting(CustomerDTO::id).containsExactly(1, 2);
+                    assertThat(page.nextCursor()).isEqualTo(CustomerCursor.encode(2));
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void willErrorWhenPageLimitIsOutOfRange() {
+        // When
+        // Then
+        StepVerifier.create(underTest.getCustomerPage(null, CustomerService.MAX_PAGE_SIZE + 1))
+                .expectError(RequestValidationException.class)
+                .verify();
+        verifyNoInteractions(customerDao);
+    }
+
+    @Test
+    void willErrorWhenCustomerHasNoProfileImage() {
+        // Given
+        int id = 10;
+        Customer customer = new Customer(id, "Alex", "alex@gmail.com", "password", 19, Gender.MALE);
+        when(customerDao.selectCustomerById(id)).thenReturn(Mono.just(customer));
+
+        // When
+        // Then
+        StepVerifier.create(underTest.getCustomerProfileImageId(id))
+                .expectErrorSatisfies(e -> assertThat(e)
+                        .isInstanceOf(ResourceNotFoundException.class)
+                        .hasMessage("customer with id [%s] profile image not found!".formatted(id)))
+                .verify();
+    }
+
+    @Test
+    void fallsBackToOriginalAndRendersMissingVariant() {
+        // Given
+        int id = 10;
+        String profileImageId = "2222";
+        String bucket = "customer";
+        S3ObjectStream original = new S3ObjectStream(
+                Flux.just(ByteBuffer.wrap("original".getBytes())), 8L, null);
+        when(s3Buckets.getCustomer()).thenReturn(bucket);
+        when(s3Service.getObject(bucket, "profile-images/%s/%s/64".formatted(id, profileImageId)))
+                .thenReturn(Mono.error(NoSuchKeyException.builder().build()));
+        when(s3Service.getObject(bucket, "profile-images/%s/%s".formatted(id, profileImageId)))
+                .thenReturn(Mono.just(original));
+
+        // When
+        // Then
+        StepVerifier.create(underTest.getCustomerProfileImage(id, profileImageId, 64))
+                .assertNext(image -> {
+                    assertThat(image.size()).isNull();
+                    assertThat(image.contentLength()).isEqualTo(8L);
+                })
+                .verifyComplete();
+        verify(profileImageVariantService).generate(id, profileImageId, 64);
+    }
+}
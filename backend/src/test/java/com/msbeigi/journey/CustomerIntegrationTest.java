@@ -13,6 +13,7 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.client.MultipartBodyBuilder;
@@ -27,6 +28,7 @@ import java.util.List;
 import java.util.Objects;
 import java.util.Random;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
@@ -100,7 +102,8 @@ public class CustomerIntegrationTest {
                 age,
                 List.of("ROLE_USER"),
                 email,
-                null
+                null,
+                0
         );
 
         // make sure that the customer is present
@@ -247,7 +250,7 @@ public class CustomerIntegrationTest {
         // update customer
         String newName = "newName";
         var customerUpdateRequest = new CustomerUpdateRequest(
-                newName, null, null
+                newName, null, null, null
         );
 
         webTestClient.put()
@@ -280,7 +283,8 @@ public class CustomerIntegrationTest {
                 age,
                 List.of("ROLE_USER"),
                 email,
-                null );
+                null,
+                1);
 
         assertThat(updatedCustomer).isEqualTo(expected);
     }
@@ -385,5 +389,23 @@ public class CustomerIntegrationTest {
 
         assertThat(actual).isEqualTo(downloadedImage);
 
+        // Revalidating with the etag skips the download
+        webTestClient.get()
+                .uri(CUSTOMER_PATH + "/{customerId}/profile-image", customerDTO.id())
+                .ifNoneMatch("\"%s\"".formatted(profileImageId))
+                .exchange()
+                .expectStatus()
+                .isNotModified()
+                .expectHeader()
+                .valueEquals(HttpHeaders.ETAG, "\"%s\"".formatted(profileImageId));
+
+        // A url pinned to the profile image id can be cached forever
+        webTestClient.get()
+                .uri(CUSTOMER_PATH + "/{customerId}/profile-image?v={v}", customerDTO.id(), profileImageId)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader()
+                .cacheControl(CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable());
     }
 }
@@ -0,0 +1,64 @@
+package com.msbeigi.journey;
+
+import com.msbeigi.customer.CustomerRegistrationRequest;
+import com.msbeigi.customer.Gender;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+
+// metrics export is off in tests unless asked for
+@AutoConfigureObservability
+@SpringBootTest(webEnvironment = RANDOM_PORT)
+public class MetricsIntegrationTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @BeforeEach
+    public void setUp() {
+        webTestClient = webTestClient.mutate()
+                .responseTimeout(Duration.ofMillis(30000))
+                .build();
+    }
+
+    @Test
+    void canScrapeCustomerDaoAndConnectionPoolMetrics() {
+        // register a customer so the daos and the pool have been used
+        var request = new CustomerRegistrationRequest(
+                "metrics", "metrics_" + UUID.randomUUID() + "@gmail.com", "password", 30, Gender.MALE);
+        webTestClient.post()
+                .uri("/api/v1/customers")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Mono.just(request), CustomerRegistrationRequest.class)
+                .exchange()
+                .expectStatus()
+                .isOk();
+
+        // scrape
+        String scrape = webTestClient.get()
+                .uri("/actuator/prometheus")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody(String.class)
+                .returnResult()
+                .getResponseBody();
+
+        assertThat(scrape)
+                .contains("customer_dao_seconds_bucket{")
+                .contains("customer_dao_seconds_count{dao=\"cached\",method=\"insertCustomer\",outcome=\"success\"")
+                .contains("customer_dao_seconds_count{dao=\"jdbc\",method=\"insertCustomer\",outcome=\"success\"")
+                .contains("hikaricp_connections_active");
+    }
+}
@@ -0,0 +1,59 @@
+package com.msbeigi.jwt;
+
+import com.msbeigi.customer.CustomerDao;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ActiveUserCacheTest {
+
+    @Mock
+    private CustomerDao customerDao;
+
+    private ActiveUserCache underTest;
+
+    @BeforeEach
+    void setUp() {
+        underTest = new ActiveUserCache(customerDao, new SimpleMeterRegistry(), 100, Duration.ofMinutes(1));
+    }
+
+    @Test
+    void canCheckUserOnlyOnceWithinTtl() {
+        // Given
+        String email = "alex@gmail.com";
+        when(customerDao.existCustomerWithEmail(email)).thenReturn(true);
+
+        // When
+        boolean first = underTest.isActive(email);
+        boolean second = underTest.isActive(email);
+
+        // Then
+        assertThat(first).isTrue();
+        assertThat(second).isTrue();
+        verify(customerDao, times(1)).existCustomerWithEmail(email);
+    }
+
+    @Test
+    void willCheckUserAgainAfterInvalidate() {
+        // Given
+        String email = "alex@gmail.com";
+        when(customerDao.existCustomerWithEmail(email)).thenReturn(true, false);
+        underTest.isActive(email);
+
+        // When
+        underTest.invalidate(email);
+
+        // Then
+        assertThat(underTest.isActive(email)).isFalse();
+        verify(customerDao, times(2)).existCustomerWithEmail(email);
+    }
+}
@@ -0,0 +1,66 @@
+package com.msbeigi.jwt;
+
+import io.jsonwebtoken.JwtException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+class VerifiedTokenCacheTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private JWTUtil jwtUtil;
+    private VerifiedTokenCache underTest;
+
+    @BeforeEach
+    void setUp() {
+        jwtUtil = spy(new JWTUtil());
+        underTest = new VerifiedTokenCache(jwtUtil, meterRegistry, 100);
+    }
+
+    @Test
+    void canVerifyTokenOnlyOnce() {
+        // Given
+        String jwt = jwtUtil.issueToken("alex@gmail.com", "ROLE_USER");
+
+        // When
+        VerifiedToken first = underTest.verify(jwt);
+        VerifiedToken second = underTest.verify(jwt);
+
+        // Then
+        assertThat(second).isEqualTo(first);
+        assertThat(first.subject()).isEqualTo("alex@gmail.com");
+        assertThat(first.scopes()).isEqualTo(List.of("ROLE_USER"));
+        assertThat(first.isExpired()).isFalse();
+        verify(jwtUtil, times(1)).verify(jwt);
+
+        assertThat(meterRegistry.get("cache.gets")
+                .tag("cache", "jwt.verified-tokens")
+                .tag("result", "hit")
+                .functionCounter()
+                .count()).isEqualTo(1);
+        assertThat(meterRegistry.get("cache.gets")
+                .tag("cache", "jwt.verified-tokens")
+                .tag("result", "miss")
+                .functionCounter()
+                .count()).isEqualTo(1);
+    }
+
+    @Test
+    void willNotCacheInvalidToken() {
+        // Given
+        String jwt = jwtUtil.issueToken("alex@gmail.com") + "tampered";
+
+        // When
+        assertThatThrownBy(() -> underTest.verify(jwt)).isInstanceOf(JwtException.class);
+        assertThatThrownBy(() -> underTest.verify(jwt)).isInstanceOf(JwtException.class);
+
+        // Then
+        verify(jwtUtil, times(2)).verify(jwt);
+    }
+}
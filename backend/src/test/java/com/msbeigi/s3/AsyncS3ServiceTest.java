@@ -0,0 +1,125 @@
+package com.msbeigi.s3;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+import software.amazon.awssdk.services.s3.model.UploadPartResponse;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+class AsyncS3ServiceTest {
+
+    private static final String BUCKET = "customer";
+
+    @TempDir
+    private Path tempDir;
+
+    private AsyncS3Service underTest(S3AsyncClient s3, int maxConcurrentParts) {
+        return new AsyncS3Service(s3, DataSize.ofBytes(100), DataSize.ofBytes(30), maxConcurrentParts);
+    }
+
+    @Test
+    void putsSmallObjectInOneRequest() throws IOException {
+        // Given
+        byte[] data = bytes(99);
+        Path file = Files.write(tempDir.resolve("upload"), data);
+        S3AsyncClient s3 = spy(new FakeS3Async(tempDir.resolve("s3").toString()));
+
+        // When
+        underTest(s3, 4).putObject(BUCKET, "profile-images/1/foo", file).join();
+
+        // Then
+        verify(s3, never()).createMultipartUpload(any(CreateMultipartUploadRequest.class));
+        assertThat(new S3Service(new FakeS3(tempDir.resolve("s3").toString()))
+                .getObject(BUCKET, "profile-images/1/foo")).isEqualTo(data);
+    }
+
+    @Test
+    void putsLargeObjectInParts() throws IOException {
+        // Given
+        byte[] data = bytes(250);
+        Path file = Files.write(tempDir.resolve("upload"), data);
+        S3AsyncClient s3 = spy(new FakeS3Async(tempDir.resolve("s3").toString()));
+
+        // When
+        underTest(s3, 4).putObject(BUCKET, "profile-images/1/foo", file).join();
+
+        // Then
+        verify(s3, times(9)).uploadPart(any(UploadPartRequest.class), any(AsyncRequestBody.class));
+        assertThat(new S3Service(new FakeS3(tempDir.resolve("s3").toString()))
+                .getObject(BUCKET, "profile-images/1/foo")).isEqualTo(data);
+        assertThat(tempDir.resolve("s3").resolve(".multipart-uploads")).isEmptyDirectory();
+    }
+
+    @Test
+    void uploadsAtMostMaxConcurrentPartsAtOnce() throws IOException {
+        // Given
+        Path file = Files.write(tempDir.resolve("upload"), bytes(250));
+        S3AsyncClient s3 = mock(S3AsyncClient.class);
+        when(s3.createMultipartUpload(any(CreateMultipartUploadRequest.class))).thenReturn(
+                CompletableFuture.completedFuture(CreateMultipartUploadResponse.builder().uploadId("u").build()));
+        List<CompletableFuture<UploadPartResponse>> inFlight = new CopyOnWriteArrayList<>();
+        when(s3.uploadPart(any(UploadPartRequest.class), any(AsyncRequestBody.class))).thenAnswer(invocation -> {
+            CompletableFuture<UploadPartResponse> part = new CompletableFuture<>();
+            inFlight.add(part);
+            return part;
+        });
+
+        // When
+        underTest(s3, 3).putObject(BUCKET, "foo", file);
+
+        // Then
+        verify(s3, timeout(1000).times(3)).uploadPart(any(UploadPartRequest.class), any(AsyncRequestBody.class));
+        inFlight.get(0).complete(UploadPartResponse.builder().eTag("1").build());
+        verify(s3, timeout(1000).times(4)).uploadPart(any(UploadPartRequest.class), any(AsyncRequestBody.class));
+    }
+
+    @Test
+    void abortsMultipartUploadWhenAPartFails() throws IOException {
+        // Given
+        Path file = Files.write(tempDir.resolve("upload"), bytes(250));
+        S3AsyncClient s3 = mock(S3AsyncClient.class);
+        when(s3.createMultipartUpload(any(CreateMultipartUploadRequest.class))).thenReturn(
+                CompletableFuture.completedFuture(CreateMultipartUploadResponse.builder().uploadId("u").build()));
+        when(s3.uploadPart(any(UploadPartRequest.class), any(AsyncRequestBody.class)))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("connection reset")));
+        when(s3.abortMultipartUpload(any(AbortMultipartUploadRequest.class)))
+                .thenReturn(CompletableFuture.completedFuture(AbortMultipartUploadResponse.builder().build()));
+
+        // When
+        CompletableFuture<Void> actual = underTest(s3, 3).putObject(BUCKET, "foo", file);
+
+        // Then
+        assertThatThrownBy(actual::join).hasRootCauseMessage("connection reset");
+        verify(s3).abortMultipartUpload(AbortMultipartUploadRequest.builder()
+                .bucket(BUCKET)
+                .key("foo")
+                .uploadId("u")
+                .build());
+        verify(s3, never()).completeMultipartUpload(any(CompleteMultipartUploadRequest.class));
+    }
+
+    private static byte[] bytes(int length) {
+        byte[] bytes = new byte[length];
+        new Random(length).nextBytes(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,64 @@
+package com.msbeigi.s3;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import reactor.test.StepVerifier;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReactiveS3ServiceTest {
+
+    private static final String BUCKET = "customer";
+
+    @TempDir
+    private Path tempDir;
+
+    private S3Service s3Service;
+    private ReactiveS3Service underTest;
+
+    @BeforeEach
+    void setUp() {
+        // FakeS3Async reads what FakeS3 writes
+        s3Service = new S3Service(new FakeS3(tempDir.toString()));
+        underTest = new ReactiveS3Service(new FakeS3Async(tempDir.toString()));
+    }
+
+    @Test
+    void canStreamObject() {
+        // Given
+        byte[] data = "hello world".getBytes();
+        s3Service.putObject(BUCKET, "profile-images/1/foo", data);
+
+        // When
+        // Then
+        StepVerifier.create(underTest.getObject(BUCKET, "profile-images/1/foo")
+                        .flatMap(object -> {
+                            assertThat(object.contentLength()).isEqualTo(data.length);
+                            assertThat(object.lastModified()).isNotNull();
+                            return object.content().collect(ByteArrayOutputStream::new, this::write);
+                        }))
+                .assertNext(content -> assertThat(content.toByteArray()).isEqualTo(data))
+                .verifyComplete();
+    }
+
+    @Test
+    void willErrorWithNoSuchKeyForMissingObject() {
+        // When
+        // Then
+        StepVerifier.create(underTest.getObject(BUCKET, "missing"))
+                .expectError(NoSuchKeyException.class)
+                .verify();
+    }
+
+    private void write(ByteArrayOutputStream out, ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        out.writeBytes(bytes);
+    }
+}
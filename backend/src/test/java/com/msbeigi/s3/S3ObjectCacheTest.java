@@ -0,0 +1,231 @@
+package com.msbeigi.s3;
+
+import com.msbeigi.exception.RangeNotSatisfiableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpRange;
+import org.springframework.util.unit.DataSize;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class S3ObjectCacheTest {
+
+    private static final String BUCKET = "customer";
+
+    @TempDir
+    private Path tempDir;
+
+    private S3Service s3Service;
+    private SimpleMeterRegistry meterRegistry;
+    private Path cacheDirectory;
+
+    @BeforeEach
+    void setUp() {
+        s3Service = new S3Service(new FakeS3(tempDir.resolve("s3").toString()));
+        meterRegistry = new SimpleMeterRegistry();
+        cacheDirectory = tempDir.resolve("cache");
+    }
+
+    private S3ObjectCache cache(DataSize maximumSize) {
+        return new S3ObjectCache(s3Service, meterRegistry, true, cacheDirectory, maximumSize);
+    }
+
+    @Test
+    void canServeObjectFromDiskAfterFirstFetch() throws IOException {
+        // Given
+        byte[] data = "hello world".getBytes();
+        s3Service.putObject(BUCKET, "foo", data);
+        S3ObjectCache underTest = cache(DataSize.ofKilobytes(1));
+
+        // When
+        S3ObjectContent miss = underTest.getObject(BUCKET, "foo");
+        byte[] missBytes = readAndClose(miss.content());
+        // remove the remote copy so a second fetch would fail
+        Files.delete(tempDir.resolve("s3").resolve(BUCKET).resolve("foo"));
+        S3ObjectContent hit = underTest.getObject(BUCKET, "foo");
+
+        // Then
+        assertThat(missBytes).isEqualTo(data);
+        assertThat(hit.contentLength()).isEqualTo(data.length);
+        assertThat(hit.lastModified()).isNotNull();
+        assertThat(transferAndClose(hit.content())).isEqualTo(data);
+        assertThat(meterRegistry.get("s3.objects.cache.hit.ratio").gauge().value()).isEqualTo(0.5);
+    }
+
+    @Test
+    void evictsObjectsToStayWithinMaximumSize() throws IOException {
+        // Given
+        S3ObjectCache underTest = cache(DataSize.ofBytes(25));
+        for (String key : new String[]{"a", "b", "c"}) {
+            s3Service.putObject(BUCKET, key, "0123456789".getBytes());
+        }
+
+        // When
+        for (String key : new String[]{"a", "b", "c"}) {
+            readAndClose(underTest.getObject(BUCKET, key).content());
+        }
+
+        // Then
+        assertThat(filesIn(cacheDirectory)).isEqualTo(2);
+        assertThat(meterRegistry.get("s3.objects.cache.disk.bytes").gauge().value()).isEqualTo(20);
+    }
+
+    @Test
+    void leavesNoPartialFileWhenFetchFails() {
+        // Given
+        S3ObjectCache underTest = cache(DataSize.ofKilobytes(1));
+
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.getObject(BUCKET, "missing"))
+                .isInstanceOf(NoSuchKeyException.class);
+        assertThat(filesIn(cacheDirectory)).isZero();
+    }
+
+    @Test
+    void removesOnlyFilesLeftByPreviousInstances() throws IOException {
+        // Given
+        Path abandoned = Files.createDirectories(cacheDirectory.resolve("instance-previous"));
+        Files.writeString(abandoned.resolve(".lock"), "");
+        Files.writeString(abandoned.resolve("stale"), "stale");
+        Files.writeString(cacheDirectory.resolve("unrelated"), "keep");
+
+        // When
+        cache(DataSize.ofKilobytes(1));
+
+        // Then
+        assertThat(abandoned).doesNotExist();
+        assertThat(cacheDirectory.resolve("unrelated")).hasContent("keep");
+    }
+
+    @Test
+    void keepsFilesOfAnotherInstanceSharingTheDirectory() throws IOException {
+        // Given
+        byte[] data = "hello world".getBytes();
+        s3Service.putObject(BUCKET, "foo", data);
+        S3ObjectCache first = cache(DataSize.ofKilobytes(1));
+        readAndClose(first.getObject(BUCKET, "foo").content());
+        Files.delete(tempDir.resolve("s3").resolve(BUCKET).resolve("foo"));
+
+        // When
+        cache(DataSize.ofKilobytes(1));
+
+        // Then
+        assertThat(readAndClose(first.getObject(BUCKET, "foo").content())).isEqualTo(data);
+    }
+
+    @Test
+    void removesOwnDirectoryOnDestroy() throws IOException {
+        // Given
+        s3Service.putObject(BUCKET, "foo", "hello world".getBytes());
+        S3ObjectCache underTest = cache(DataSize.ofKilobytes(1));
+        readAndClose(underTest.getObject(BUCKET, "foo").content());
+
+        // When
+        underTest.destroy();
+
+        // Then
+        assertThat(cacheDirectory).isEmptyDirectory();
+    }
+
+    @Test
+    void canBypassDiskWhenDisabled() throws IOException {
+        // Given
+        byte[] data = "hello world".getBytes();
+        s3Service.putObject(BUCKET, "foo", data);
+        S3ObjectCache underTest = new S3ObjectCache(
+                s3Service, meterRegistry, false, cacheDirectory, DataSize.ofKilobytes(1));
+
+        // When
+        S3ObjectContent actual = underTest.getObject(BUCKET, "foo");
+
+        // Then
+        assertThat(readAndClose(actual.content())).isEqualTo(data);
+        assertThat(Files.exists(cacheDirectory)).isFalse();
+    }
+
+    @Test
+    void canServeRangeFromDisk() throws IOException {
+        // Given
+        byte[] data = "hello world".getBytes();
+        s3Service.putObject(BUCKET, "foo", data);
+        S3ObjectCache underTest = cache(DataSize.ofKilobytes(1));
+
+        // When
+        S3ObjectContent miss = underTest.getObject(BUCKET, "foo", HttpRange.createByteRange(0, 4));
+        S3ObjectContent hit = underTest.getObject(BUCKET, "foo", HttpRange.createSuffixRange(5));
+
+        // Then
+        assertThat(miss.contentRange()).isEqualTo(new ContentRange(0, 4, data.length));
+        assertThat(miss.contentLength()).isEqualTo(5);
+        assertThat(readAndClose(miss.content())).isEqualTo("hello".getBytes());
+        assertThat(hit.contentRange().headerValue()).isEqualTo("bytes 6-10/11");
+        assertThat(transferAndClose(hit.content())).isEqualTo("world".getBytes());
+    }
+
+    @Test
+    void willThrowRangeNotSatisfiableForRangePastEnd() {
+        // Given
+        s3Service.putObject(BUCKET, "foo", "hello world".getBytes());
+        S3ObjectCache underTest = cache(DataSize.ofKilobytes(1));
+
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.getObject(BUCKET, "foo", HttpRange.createByteRange(11)))
+                .isInstanceOf(RangeNotSatisfiableException.class)
+                .extracting("completeLength").isEqualTo(11L);
+        assertThat(filesIn(cacheDirectory)).isEqualTo(1);
+    }
+
+    @Test
+    void canPassRangeThroughWhenDisabled() throws IOException {
+        // Given
+        s3Service.putObject(BUCKET, "foo", "hello world".getBytes());
+        S3ObjectCache underTest = new S3ObjectCache(
+                s3Service, meterRegistry, false, cacheDirectory, DataSize.ofKilobytes(1));
+
+        // When
+        S3ObjectContent actual = underTest.getObject(BUCKET, "foo", HttpRange.createByteRange(6));
+
+        // Then
+        assertThat(actual.contentRange()).isEqualTo(new ContentRange(6, 10, 11));
+        assertThat(actual.contentLength()).isEqualTo(5);
+        assertThat(readAndClose(actual.content())).isEqualTo("world".getBytes());
+    }
+
+    private static byte[] readAndClose(InputStream inputStream) throws IOException {
+        try (inputStream) {
+            return inputStream.readAllBytes();
+        }
+    }
+
+    private static byte[] transferAndClose(InputStream inputStream) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (inputStream) {
+            inputStream.transferTo(out);
+        }
+        return out.toByteArray();
+    }
+
+    // cached objects across instance directories, without their lock files
+    private static long filesIn(Path directory) {
+        try (Stream<Path> files = Files.walk(directory)) {
+            return files.filter(Files::isRegularFile)
+                    .filter(file -> !file.getFileName().toString().equals(".lock"))
+                    .count();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
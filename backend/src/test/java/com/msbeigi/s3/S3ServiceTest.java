@@ -2,19 +2,23 @@ package com.msbeigi.s3;
 
 import com.msbeigi.customer.Customer;
 import com.msbeigi.customer.Gender;
+import com.msbeigi.exception.RangeNotSatisfiableException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpRange;
 import software.amazon.awssdk.core.ResponseInputStream;
 import software.amazon.awssdk.core.sync.RequestBody;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.model.GetObjectRequest;
 import software.amazon.awssdk.services.s3.model.GetObjectResponse;
 import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.S3Exception;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.util.Optional;
 
@@ -69,6 +73,99 @@ class S3ServiceTest {
                 .isEqualTo(RequestBody.fromBytes(data).contentStreamProvider().newStream().readAllBytes());
     }
 
+    @Test
+    void canPutObjectFromStream() throws IOException {
+        // Given
+        String bucket = "customer";
+        String key = "foo";
+        byte[] data = "hello world".getBytes();
+
+        // When
+        underTest.putObject(bucket, key, new ByteArrayInputStream(data), data.length);
+
+        // Then
+        ArgumentCaptor<PutObjectRequest> putObjectRequestArgumentCaptor =
+                ArgumentCaptor.forClass(PutObjectRequest.class);
+
+        ArgumentCaptor<RequestBody> requestBodyArgumentCaptor =
+                ArgumentCaptor.forClass(RequestBody.class);
+
+        verify(s3Client).putObject(
+                putObjectRequestArgumentCaptor.capture(),
+                requestBodyArgumentCaptor.capture()
+        );
+
+        PutObjectRequest putObjectRequestArgumentCaptorValue = putObjectRequestArgumentCaptor.getValue();
+
+        assertThat(putObjectRequestArgumentCaptorValue.bucket()).isEqualTo(bucket);
+        assertThat(putObjectRequestArgumentCaptorValue.key()).isEqualTo(key);
+        assertThat(putObjectRequestArgumentCaptorValue.contentLength()).isEqualTo(data.length);
+
+        RequestBody requestBodyArgumentCaptorValue = requestBodyArgumentCaptor.getValue();
+
+        assertThat(requestBodyArgumentCaptorValue.optionalContentLength()).contains((long) data.length);
+        assertThat(requestBodyArgumentCaptorValue.contentStreamProvider().newStream().readAllBytes())
+                .isEqualTo(data);
+    }
+
+    @Test
+    void canGetObjectStream() {
+        // Given
+        String bucket = "customer";
+        String key = "foo";
+
+        GetObjectRequest getObjectRequest = GetObjectRequest.builder()
+                .bucket(bucket)
+                .key(key)
+                .build();
+
+        ResponseInputStream<GetObjectResponse> res = mock(ResponseInputStream.class);
+
+        when(s3Client.getObject(eq(getObjectRequest))).thenReturn(res);
+
+        // When
+        ResponseInputStream<GetObjectResponse> object = underTest.getObjectStream(bucket, key);
+
+        // Then
+        assertThat(object).isSameAs(res);
+    }
+
+    @Test
+    void canGetObjectStreamRange() {
+        // Given
+        String bucket = "customer";
+        String key = "foo";
+
+        GetObjectRequest getObjectRequest = GetObjectRequest.builder()
+                .bucket(bucket)
+                .key(key)
+                .range("bytes=100-")
+                .build();
+
+        ResponseInputStream<GetObjectResponse> res = mock(ResponseInputStream.class);
+
+        when(s3Client.getObject(eq(getObjectRequest))).thenReturn(res);
+
+        // When
+        ResponseInputStream<GetObjectResponse> object =
+                underTest.getObjectStream(bucket, key, HttpRange.createByteRange(100));
+
+        // Then
+        assertThat(object).isSameAs(res);
+    }
+
+    @Test
+    void willThrowRangeNotSatisfiableWhenS3RejectsRange() {
+        // Given
+        when(s3Client.getObject(any(GetObjectRequest.class)))
+                .thenThrow(S3Exception.builder().statusCode(416).build());
+
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.getObjectStream("customer", "foo", HttpRange.createByteRange(100)))
+                .isInstanceOf(RangeNotSatisfiableException.class);
+    }
+
     @Test
     void canGetObject() throws IOException {
         // Given
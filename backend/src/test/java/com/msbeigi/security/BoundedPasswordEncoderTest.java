@@ -0,0 +1,164 @@
+package com.msbeigi.security;
+
+import com.msbeigi.exception.PasswordHashingUnavailableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class BoundedPasswordEncoderTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private BoundedPasswordEncoder underTest;
+
+    @AfterEach
+    void tearDown() {
+        underTest.close();
+    }
+
+    @Test
+    void canEncodeAndMatchOnHashingPool() {
+        // Given
+        underTest = new BoundedPasswordEncoder(
+                new BCryptPasswordEncoder(4), 2, 2, Duration.ofSeconds(1), meterRegistry);
+
+        // When
+        String encoded = underTest.encode("password");
+
+        // Then
+        assertThat(underTest.matches("password", encoded)).isTrue();
+        assertThat(underTest.matches("wrong", encoded)).isFalse();
+        assertThat(meterRegistry.get("password.hashing").tag("operation", "encode").timer().count())
+                .isEqualTo(1);
+        assertThat(meterRegistry.get("password.hashing").tag("operation", "matches").timer().count())
+                .isEqualTo(2);
+    }
+
+    @Test
+    void canEncodeAllInOrder() {
+        // Given
+        underTest = new BoundedPasswordEncoder(
+                new BCryptPasswordEncoder(4), 2, 1, Duration.ofSeconds(1), meterRegistry);
+        List<String> passwords = List.of("a", "b", "c", "d", "e");
+
+        // When
+        List<String> encoded = underTest.encodeAll(passwords);
+
+        // Then
+        assertThat(encoded).hasSize(passwords.size());
+        for (int i = 0; i < passwords.size(); i++) {
+            assertThat(underTest.matches(passwords.get(i), encoded.get(i))).isTrue();
+        }
+        assertThat(meterRegistry.get("password.hashing.rejected").counter().count()).isZero();
+    }
+
+    @Test
+    void concurrentBulkCallersShareThePoolSizeSlots() throws Exception {
+        // Given
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        PasswordEncoder slowEncoder = mock(PasswordEncoder.class);
+        when(slowEncoder.encode(any())).thenAnswer(invocation -> {
+            started.countDown();
+            release.await();
+            return "hash";
+        });
+        underTest = new BoundedPasswordEncoder(
+                slowEncoder, 1, 2, Duration.ofSeconds(1), meterRegistry);
+
+        // When
+        CompletableFuture<List<String>> first = CompletableFuture.supplyAsync(() -> underTest.encodeAll(List.of("a")));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<List<String>> second = CompletableFuture.supplyAsync(() -> underTest.encodeAll(List.of("b")));
+        TimeUnit.MILLISECONDS.sleep(200);
+
+        // Then
+        // the second caller waits for the single slot instead of queueing next to the first
+        assertThat(meterRegistry.get("password.hashing.queue.depth").gauge().value()).isZero();
+        release.countDown();
+        assertThat(first.get(5, TimeUnit.SECONDS)).containsExactly("hash");
+        assertThat(second.get(5, TimeUnit.SECONDS)).containsExactly("hash");
+    }
+
+    @Test
+    void bulkEncodingWaitsForFullQueueInsteadOfHashingOnCaller() throws Exception {
+        // Given
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        List<String> encodingThreads = new CopyOnWriteArrayList<>();
+        PasswordEncoder slowEncoder = mock(PasswordEncoder.class);
+        when(slowEncoder.encode(any())).thenAnswer(invocation -> {
+            encodingThreads.add(Thread.currentThread().getName());
+            started.countDown();
+            release.await();
+            return "hash";
+        });
+        underTest = new BoundedPasswordEncoder(
+                slowEncoder, 1, 1, Duration.ofSeconds(1), meterRegistry);
+        CompletableFuture<String> running = CompletableFuture.supplyAsync(() -> underTest.encode("a"));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<String> queued = CompletableFuture.supplyAsync(() -> underTest.encode("b"));
+        while (meterRegistry.get("password.hashing.queue.depth").gauge().value() < 1) {
+            Thread.onSpinWait();
+        }
+
+        // When
+        CompletableFuture<List<String>> bulk = CompletableFuture.supplyAsync(() -> underTest.encodeAll(List.of("c")));
+        TimeUnit.MILLISECONDS.sleep(100);
+        release.countDown();
+
+        // Then
+        assertThat(bulk.get(5, TimeUnit.SECONDS)).containsExactly("hash");
+        assertThat(running.get(5, TimeUnit.SECONDS)).isEqualTo("hash");
+        assertThat(queued.get(5, TimeUnit.SECONDS)).isEqualTo("hash");
+        assertThat(encodingThreads).hasSize(3).allMatch(name -> name.startsWith("password-hashing-"));
+    }
+
+    @Test
+    void willFailFastWhenSaturated() throws Exception {
+        // Given
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        PasswordEncoder slowEncoder = mock(PasswordEncoder.class);
+        when(slowEncoder.encode(any())).thenAnswer(invocation -> {
+            started.countDown();
+            release.await();
+            return "hash";
+        });
+        underTest = new BoundedPasswordEncoder(
+                slowEncoder, 1, 1, Duration.ofSeconds(2), meterRegistry);
+
+        CompletableFuture<String> running = CompletableFuture.supplyAsync(() -> underTest.encode("a"));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<String> queued = CompletableFuture.supplyAsync(() -> underTest.encode("b"));
+        while (meterRegistry.get("password.hashing.queue.depth").gauge().value() < 1) {
+            Thread.onSpinWait();
+        }
+
+        // When
+        assertThatThrownBy(() -> underTest.encode("c"))
+                .isInstanceOf(PasswordHashingUnavailableException.class)
+                .satisfies(e -> assertThat(((PasswordHashingUnavailableException) e).getRetryAfter())
+                        .isEqualTo(Duration.ofSeconds(2)));
+
+        // Then
+        release.countDown();
+        assertThat(running.get(5, TimeUnit.SECONDS)).isEqualTo("hash");
+        assertThat(queued.get(5, TimeUnit.SECONDS)).isEqualTo("hash");
+        assertThat(meterRegistry.get("password.hashing.rejected").counter().count()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,40 @@
+package com.msbeigi.threads;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class VirtualThreadsTest {
+
+    @Test
+    void runsTasksOnNamedVirtualThreads() throws Exception {
+        assumeTrue(VirtualThreads.isSupported());
+
+        // Given
+        ExecutorService executor = VirtualThreads.newThreadPerTaskExecutor("virtual-test-");
+
+        // When
+        String name = executor.submit(() -> Thread.currentThread().getName()).get();
+        boolean virtual = executor.submit(() -> (Boolean) Thread.class.getMethod("isVirtual")
+                .invoke(Thread.currentThread())).get();
+        executor.shutdown();
+
+        // Then
+        assertThat(name).startsWith("virtual-test-");
+        assertThat(virtual).isTrue();
+    }
+
+    @Test
+    void willThrowWhenJdkHasNoVirtualThreads() {
+        assumeFalse(VirtualThreads.isSupported());
+
+        assertThatThrownBy(() -> VirtualThreads.newThreadPerTaskExecutor("virtual-test-"))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageStartingWith("virtual threads need JDK 21 or newer");
+    }
+}
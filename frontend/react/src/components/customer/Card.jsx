@@ -24,7 +24,7 @@ import {errorNotification, successNotification} from "../../services/notificatio
 import UpdateCustomerDrawer from "./UpdateCustomerDrawer.jsx";
 import {AiFillDelete} from "react-icons/ai";
 
-export default function CardWithImage({id, name, email, age, gender, imageNumber, fetchCustomers}) {
+export default function CardWithImage({id, name, email, age, gender, profileImageId, version, imageNumber, fetchCustomers}) {
     const randomUserGender = gender === "MALE" ? "men" : "women";
     const { isOpen, onOpen, onClose } = useDisclosure()
     const cancelRef = useRef()
@@ -53,7 +53,7 @@ export default function CardWithImage({id, name, email, age, gender, imageNumber
                     <Avatar
                         size={'xl'}
                         src={
-                            customerProfilePictureUrl(id)
+                            customerProfilePictureUrl(id, profileImageId, 256)
                         }
                         css={{
                             border: '2px solid white',
@@ -74,7 +74,7 @@ export default function CardWithImage({id, name, email, age, gender, imageNumber
                 <Stack direction={"row"} justify={"center"} spacing={6} p={2}>
                     <Stack>
                         <UpdateCustomerDrawer
-                            initialValues={{ name, email, age}}
+                            initialValues={{ name, email, age, version}}
                             customerId={id}
                             fetchCustomers={fetchCustomers}
                         />
@@ -34,7 +34,7 @@ const UpdateCustomerForm = ({ fetchCustomers, initialValues, customerId }) => {
                     borderRadius={"full"}
                     boxSize={"150px"}
                     objectFit={"cover"}
-                    src={customerProfilePictureUrl(customerId)}
+                    src={customerProfilePictureUrl(customerId, undefined, 256)}
                 />
                 <MyDropzone customerId={customerId} fetchCustomers={fetchCustomers} />
             </VStack>
@@ -72,8 +72,13 @@ export const uploadCustomerProfilePicture = async (id, formData) => {
     }
 }
 
-export const customerProfilePictureUrl = (id) =>
-    `${import.meta.env.VITE_API_BASEURL}/api/v1/customers/${id}/profile-image`;
+export const customerProfilePictureUrl = (id, profileImageId, size) => {
+    const params = new URLSearchParams();
+    if (profileImageId) params.append("v", profileImageId);
+    if (size) params.append("size", size);
+    const query = params.toString();
+    return `${import.meta.env.VITE_API_BASEURL}/api/v1/customers/${id}/profile-image${query ? `?${query}` : ""}`;
+}
 
 
 